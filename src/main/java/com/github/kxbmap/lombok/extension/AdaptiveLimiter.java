@@ -0,0 +1,174 @@
+/*
+ * Copyright 2014 Tsukasa Kitachi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.kxbmap.lombok.extension;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntUnaryOperator;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Concurrency limiter that adapts its limit to the observed round trip time.
+ * <p>
+ * Uses a TCP Vegas style estimate of the number of queued requests at the dependency,
+ * {@code limit * (1 - minRtt / rtt)}: the limit grows while the estimate is below alpha and shrinks once it
+ * exceeds beta, so load is shed as soon as latency starts to rise. A failed call is treated as a drop and
+ * shrinks the limit multiplicatively. Calls beyond the limit fail immediately with a shared
+ * {@link LimitExceededException}.
+ *
+ * @see FutureExtensions#limited(Supplier, AdaptiveLimiter)
+ */
+public class AdaptiveLimiter {
+
+    /**
+     * minRtt is re-measured every this many samples so it can follow a changing dependency
+     */
+    private static final int PROBE_INTERVAL = 1000;
+
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final LongSupplier clock;
+
+    private final AtomicInteger limit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong minRtt = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong samples = new AtomicLong();
+    private final LongAdder rejected = new LongAdder();
+
+    public AdaptiveLimiter(int initialLimit, int minLimit, int maxLimit) {
+        this(initialLimit, minLimit, maxLimit, System::nanoTime);
+    }
+
+    AdaptiveLimiter(int initialLimit, int minLimit, int maxLimit, LongSupplier clock) {
+        if (minLimit < 1 || maxLimit < minLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException(
+                "initialLimit: " + initialLimit + ", minLimit: " + minLimit + ", maxLimit: " + maxLimit);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.clock = requireNonNull(clock);
+        this.limit = new AtomicInteger(initialLimit);
+    }
+
+    /**
+     * run task if in-flight calls are below the current limit
+     */
+    public <T> CompletableFuture<T> call(Supplier<? extends CompletableFuture<T>> task) {
+        requireNonNull(task);
+        if (!tryAcquire()) {
+            rejected.increment();
+            return FutureExtensions.exceptionallyFuture(LimitExceededException.INSTANCE);
+        }
+        long start = clock.getAsLong();
+        CompletableFuture<T> future;
+        try {
+            future = requireNonNull(task.get());
+        } catch (Throwable ex) {
+            inFlight.decrementAndGet();
+            return FutureExtensions.exceptionallyFuture(ex);
+        }
+        return future.whenComplete((t, e) -> onComplete(start, e == null));
+    }
+
+    public int limit() {
+        return limit.get();
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    private boolean tryAcquire() {
+        for (;;) {
+            int n = inFlight.get();
+            if (n >= limit.get()) {
+                return false;
+            }
+            if (inFlight.compareAndSet(n, n + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private void onComplete(long start, boolean success) {
+        int n = inFlight.getAndDecrement();
+        if (!success) {
+            updateLimit(l -> (int) (l * BACKOFF_RATIO));
+            return;
+        }
+        long rtt = clock.getAsLong() - start;
+        if (rtt <= 0) {
+            return;
+        }
+        long noLoadRtt;
+        if (samples.incrementAndGet() % PROBE_INTERVAL == 0) {
+            minRtt.set(rtt);
+            noLoadRtt = rtt;
+        } else {
+            noLoadRtt = minRtt.accumulateAndGet(rtt, Math::min);
+        }
+        updateLimit(l -> {
+            int log = Math.max(1, (int) Math.log10(l));
+            double queue = l * (1 - (double) noLoadRtt / rtt);
+            if (queue <= 3 * log) {
+                // do not grow a limit that is not being used
+                return n * 2 >= l ? l + log : l;
+            }
+            if (queue >= 6 * log) {
+                return l - log;
+            }
+            return l;
+        });
+    }
+
+    private void updateLimit(IntUnaryOperator f) {
+        for (;;) {
+            int l = limit.get();
+            int next = Math.max(minLimit, Math.min(maxLimit, f.applyAsInt(l)));
+            if (next == l || limit.compareAndSet(l, next)) {
+                return;
+            }
+        }
+    }
+
+
+    /**
+     * Stackless exception shared by all rejected calls
+     */
+    public static class LimitExceededException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        static final LimitExceededException INSTANCE = new LimitExceededException();
+
+        private LimitExceededException() {
+            super("concurrency limit exceeded", null, false, false);
+        }
+    }
+
+}
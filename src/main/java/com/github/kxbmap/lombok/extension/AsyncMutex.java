@@ -0,0 +1,32 @@
+/*
+ * Copyright 2014 Tsukasa Kitachi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.kxbmap.lombok.extension;
+
+/**
+ * Non-reentrant mutual exclusion lock whose acquire returns a future.
+ */
+public class AsyncMutex extends AsyncSemaphore {
+
+    public AsyncMutex() {
+        super(1);
+    }
+
+    public boolean isLocked() {
+        return availablePermits() == 0;
+    }
+
+}
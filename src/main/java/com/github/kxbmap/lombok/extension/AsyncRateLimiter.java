@@ -0,0 +1,174 @@
+/*
+ * Copyright 2014 Tsukasa Kitachi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.kxbmap.lombok.extension;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Token bucket rate limiter that delays calls instead of blocking a thread.
+ * <p>
+ * The bucket is a single atomic "theoretical arrival time" advanced by CAS with {@code System.nanoTime}
+ * arithmetic (GCRA); there is no refill thread. Up to {@code burst} permits are available at once.
+ * A call that has to wait is handed off by a shared timer thread once its permits become available, and its
+ * supplier runs on {@code executor} ({@link ForkJoinPool#commonPool()} by default), never on the timer.
+ * A supplier that throws fails the returned future. Permits reserved by a call that is cancelled while
+ * waiting are not returned.
+ *
+ * @see FutureExtensions#rateLimited(Supplier, AsyncRateLimiter)
+ */
+public class AsyncRateLimiter {
+
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final ScheduledExecutorService scheduler;
+    private final Executor executor;
+    private final LongSupplier clock;
+
+    private final AtomicLong arrivalTime;
+
+    public AsyncRateLimiter(double permitsPerSecond, int burst) {
+        this(permitsPerSecond, burst, SharedScheduler.get());
+    }
+
+    public AsyncRateLimiter(double permitsPerSecond, int burst, ScheduledExecutorService scheduler) {
+        this(permitsPerSecond, burst, scheduler, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param executor runs the suppliers of delayed calls
+     */
+    public AsyncRateLimiter(double permitsPerSecond, int burst, ScheduledExecutorService scheduler,
+                            Executor executor) {
+        this(permitsPerSecond, burst, scheduler, executor, System::nanoTime);
+    }
+
+    AsyncRateLimiter(double permitsPerSecond, int burst, ScheduledExecutorService scheduler, Executor executor,
+                     LongSupplier clock) {
+        if (!(permitsPerSecond > 0)) {
+            throw new IllegalArgumentException("permitsPerSecond: " + permitsPerSecond);
+        }
+        if (burst < 1) {
+            throw new IllegalArgumentException("burst: " + burst);
+        }
+        this.intervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+        this.burstNanos = intervalNanos * burst;
+        this.scheduler = requireNonNull(scheduler);
+        this.executor = requireNonNull(executor);
+        this.clock = requireNonNull(clock);
+        this.arrivalTime = new AtomicLong(clock.getAsLong());
+    }
+
+    /**
+     * Reserve permits.
+     *
+     * @return nanoseconds to wait until the permits are available
+     */
+    public long reserve(int permits) {
+        checkPermits(permits);
+        long now = clock.getAsLong();
+        for (;;) {
+            long t = arrivalTime.get();
+            long next = (t - now > 0 ? t : now) + permits * intervalNanos;
+            if (arrivalTime.compareAndSet(t, next)) {
+                return Math.max(0, next - burstNanos - now);
+            }
+        }
+    }
+
+    /**
+     * Reserve permits only if they are available now
+     */
+    public boolean tryAcquire(int permits) {
+        checkPermits(permits);
+        long now = clock.getAsLong();
+        for (;;) {
+            long t = arrivalTime.get();
+            long next = (t - now > 0 ? t : now) + permits * intervalNanos;
+            if (next - burstNanos - now > 0) {
+                return false;
+            }
+            if (arrivalTime.compareAndSet(t, next)) {
+                return true;
+            }
+        }
+    }
+
+    public <T> CompletableFuture<T> call(Supplier<? extends CompletableFuture<T>> task) {
+        return call(1, task);
+    }
+
+    /**
+     * start task when the permits are available
+     */
+    public <T> CompletableFuture<T> call(int permits, Supplier<? extends CompletableFuture<T>> task) {
+        requireNonNull(task);
+        long delay = reserve(permits);
+        if (delay == 0) {
+            try {
+                return requireNonNull(task.get());
+            } catch (Throwable ex) {
+                return FutureExtensions.exceptionallyFuture(ex);
+            }
+        }
+        CompletableFuture<T> result = new CompletableFuture<>();
+        // the timer only hands off; the supplier runs on the executor
+        scheduler.schedule(() -> {
+            if (result.isDone()) {
+                return;
+            }
+            try {
+                executor.execute(() -> start(task, result));
+            } catch (Throwable ex) {
+                result.completeExceptionally(ex);
+            }
+        }, delay, TimeUnit.NANOSECONDS);
+        return result;
+    }
+
+    private static <T> void start(Supplier<? extends CompletableFuture<T>> task, CompletableFuture<T> result) {
+        if (result.isDone()) {
+            return;
+        }
+        try {
+            requireNonNull(task.get()).whenComplete((t, e) -> {
+                if (e == null) {
+                    result.complete(t);
+                } else {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (Throwable ex) {
+            result.completeExceptionally(ex);
+        }
+    }
+
+    private static void checkPermits(int permits) {
+        if (permits < 1) {
+            throw new IllegalArgumentException("permits: " + permits);
+        }
+    }
+
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2014 Tsukasa Kitachi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.kxbmap.lombok.extension;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Semaphore whose acquire returns a future instead of blocking a thread.
+ * <p>
+ * Waiters are granted permits in FIFO order.
+ */
+public class AsyncSemaphore {
+
+    /**
+     * available permits if non-negative, otherwise the negated number of waiters
+     */
+    private final AtomicInteger state;
+    private final ConcurrentLinkedQueue<CompletableFuture<Permit>> waiters = new ConcurrentLinkedQueue<>();
+
+    public AsyncSemaphore(int permits) {
+        if (permits < 0) {
+            throw new IllegalArgumentException("permits: " + permits);
+        }
+        this.state = new AtomicInteger(permits);
+    }
+
+    /**
+     * @return future completed with a permit; already completed if one is available
+     */
+    public CompletableFuture<Permit> acquire() {
+        if (state.getAndDecrement() > 0) {
+            return CompletableFuture.completedFuture(new Permit());
+        }
+        CompletableFuture<Permit> waiter = new CompletableFuture<>();
+        waiters.add(waiter);
+        return waiter;
+    }
+
+    /**
+     * @return a permit, or null if none is available
+     */
+    public Permit tryAcquire() {
+        for (;;) {
+            int n = state.get();
+            if (n <= 0) {
+                return null;
+            }
+            if (state.compareAndSet(n, n - 1)) {
+                return new Permit();
+            }
+        }
+    }
+
+    /**
+     * Run task while holding a permit, released when the task's future completes.
+     * <p>
+     * Cancelling or completing the returned future while waiting withdraws the wait, so no permit is kept for it.
+     */
+    public <T> CompletableFuture<T> withPermit(Supplier<? extends CompletableFuture<T>> task) {
+        requireNonNull(task);
+        return withPermit(acquire(), task, () -> {
+        });
+    }
+
+    /**
+     * run task once waiter is granted
+     *
+     * @param dequeued run once when waiter is granted or withdrawn
+     */
+    static <T> CompletableFuture<T> withPermit(CompletableFuture<Permit> waiter,
+                                               Supplier<? extends CompletableFuture<T>> task, Runnable dequeued) {
+        if (waiter.isDone()) {
+            dequeued.run();
+            return withPermit(waiter.join(), task);
+        }
+        CompletableFuture<T> result = new CompletableFuture<>();
+        waiter.whenComplete((permit, e) -> {
+            dequeued.run();
+            if (permit == null) {
+                // withdrawn
+                return;
+            }
+            if (result.isDone()) {
+                // nobody waits for the task any more
+                permit.release();
+                return;
+            }
+            withPermit(permit, task).whenComplete((t, ex) -> {
+                if (ex == null) {
+                    result.complete(t);
+                } else {
+                    result.completeExceptionally(ex);
+                }
+            });
+        });
+        // a cancelled waiter passes its permit on when granted; no effect once granted
+        result.whenComplete((t, e) -> waiter.cancel(false));
+        return result;
+    }
+
+    /**
+     * @return the task's future, or a failed future if task throws
+     */
+    static <T> CompletableFuture<T> withPermit(Permit permit, Supplier<? extends CompletableFuture<T>> task) {
+        CompletableFuture<T> future;
+        try {
+            future = requireNonNull(task.get());
+        } catch (Throwable ex) {
+            permit.release();
+            return FutureExtensions.exceptionallyFuture(ex);
+        }
+        return future.whenComplete((t, e) -> permit.release());
+    }
+
+    public int availablePermits() {
+        return Math.max(0, state.get());
+    }
+
+    public int queueLength() {
+        return Math.max(0, -state.get());
+    }
+
+    private void release() {
+        for (;;) {
+            if (state.getAndIncrement() >= 0) {
+                return;
+            }
+            CompletableFuture<Permit> waiter;
+            // a waiter has decremented the state but may not have been enqueued yet
+            while ((waiter = waiters.poll()) == null) {
+                Thread.yield();
+            }
+            if (waiter.complete(new Permit())) {
+                return;
+            }
+            // the waiter was cancelled; pass the permit on
+        }
+    }
+
+
+    /**
+     * Permit of the semaphore. Releasing more than once has no effect.
+     */
+    public final class Permit implements AutoCloseable {
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit() {
+        }
+
+        public void release() {
+            if (released.compareAndSet(false, true)) {
+                AsyncSemaphore.this.release();
+            }
+        }
+
+        @Override
+        public void close() {
+            release();
+        }
+    }
+
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2014 Tsukasa Kitachi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.kxbmap.lombok.extension;
+
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+import java.util.function.IntFunction;
+
+/**
+ * Range aggregation that runs a tight loop below {@link #THRESHOLD} elements and splits across the common
+ * fork/join pool above it.
+ */
+final class BulkAggregation {
+
+    static final int THRESHOLD = 1 << 13;
+
+    private BulkAggregation() {
+    }
+
+    /**
+     * aggregate of elements [from, to)
+     */
+    interface Leaf<A> {
+        A compute(int from, int to);
+    }
+
+    static <A> A aggregate(int size, Leaf<A> leaf, BinaryOperator<A> merge) {
+        if (size <= THRESHOLD) {
+            return leaf.compute(0, size);
+        }
+        return ForkJoinPool.commonPool().invoke(new Task<>(0, size, leaf, merge));
+    }
+
+    /**
+     * indexed view of list, copied to an array unless it supports fast random access
+     */
+    @SuppressWarnings("unchecked")
+    static <E> IntFunction<E> indexed(List<E> list) {
+        if (list instanceof RandomAccess) {
+            return list::get;
+        }
+        Object[] array = list.toArray();
+        return i -> (E) array[i];
+    }
+
+    /**
+     * bin of offset in [0, range) split into bins of width range / bins, the last one taking the remainder;
+     * offset and range are unsigned
+     */
+    static int bin(long offset, long range, int bins) {
+        long width = Math.max(1, Long.divideUnsigned(range, bins));
+        long bin = Long.divideUnsigned(offset, width);
+        return bin < 0 || bin >= bins ? bins - 1 : (int) bin;
+    }
+
+
+    /**
+     * Kahan-compensated sum of doubles with a count
+     */
+    static final class KahanSum {
+        private double sum;
+        private double compensation;
+        long count;
+
+        void add(double value) {
+            double y = value - compensation;
+            double t = sum + y;
+            compensation = (t - sum) - y;
+            sum = t;
+            count++;
+        }
+
+        KahanSum merge(KahanSum other) {
+            long n = count;
+            add(other.sum);
+            add(-other.compensation);
+            count = n + other.count;
+            return this;
+        }
+
+        double sum() {
+            return sum - compensation;
+        }
+    }
+
+
+    private static final class Task<A> extends RecursiveTask<A> {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final Leaf<A> leaf;
+        private final BinaryOperator<A> merge;
+
+        Task(int from, int to, Leaf<A> leaf, BinaryOperator<A> merge) {
+            this.from = from;
+            this.to = to;
+            this.leaf = leaf;
+            this.merge = merge;
+        }
+
+        @Override
+        protected A compute() {
+            if (to - from <= THRESHOLD) {
+                return leaf.compute(from, to);
+            }
+            int mid = (from + to) >>> 1;
+            Task<A> right = new Task<>(mid, to, leaf, merge);
+            right.fork();
+            A left = new Task<>(from, mid, leaf, merge).compute();
+            return merge.apply(left, right.join());
+        }
+    }
+
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2014 Tsukasa Kitachi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.kxbmap.lombok.extension;
+
+import com.github.kxbmap.lombok.extension.AsyncSemaphore.Permit;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Limits the number of in-flight and queued asynchronous calls.
+ * <p>
+ * Calls beyond both limits fail immediately with a shared {@link BulkheadFullException}. Cancelling a queued
+ * call frees its place in the queue, and a task that throws fails the returned future.
+ *
+ * @see FutureExtensions#bulkhead(int, int)
+ */
+public class Bulkhead {
+
+    private final int maxInFlight;
+    private final int maxQueued;
+    private final AsyncSemaphore semaphore;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+
+    public Bulkhead(int maxInFlight, int maxQueued) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight: " + maxInFlight);
+        }
+        if (maxQueued < 0) {
+            throw new IllegalArgumentException("maxQueued: " + maxQueued);
+        }
+        this.maxInFlight = maxInFlight;
+        this.maxQueued = maxQueued;
+        this.semaphore = new AsyncSemaphore(maxInFlight);
+    }
+
+    /**
+     * run task when in-flight calls are below the limit
+     */
+    public <T> CompletableFuture<T> call(Supplier<? extends CompletableFuture<T>> task) {
+        requireNonNull(task);
+        Permit permit = semaphore.tryAcquire();
+        if (permit != null) {
+            return AsyncSemaphore.withPermit(permit, task);
+        }
+        if (!tryEnqueue()) {
+            rejected.increment();
+            return FutureExtensions.exceptionallyFuture(BulkheadFullException.INSTANCE);
+        }
+        return AsyncSemaphore.withPermit(semaphore.acquire(), task, queued::decrementAndGet);
+    }
+
+    public int inFlight() {
+        return maxInFlight - semaphore.availablePermits();
+    }
+
+    public int queued() {
+        return queued.get();
+    }
+
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    private boolean tryEnqueue() {
+        for (;;) {
+            int n = queued.get();
+            if (n >= maxQueued) {
+                return false;
+            }
+            if (queued.compareAndSet(n, n + 1)) {
+                return true;
+            }
+        }
+    }
+
+
+    /**
+     * Stackless exception shared by all rejected calls
+     */
+    public static class BulkheadFullException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        static final BulkheadFullException INSTANCE = new BulkheadFullException();
+
+        private BulkheadFullException() {
+            super("bulkhead is full", null, false, false);
+        }
+    }
+
+}
@@ -0,0 +1,301 @@
+/*
+ * Copyright 2014 Tsukasa Kitachi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.kxbmap.lombok.extension;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Lock-free circuit breaker for future-returning calls.
+ * <p>
+ * While closed, the outcomes of the last {@code windowSize} calls are kept in a ring buffer of ints.
+ * Once at least {@code minimumCalls} are recorded and the failure rate or the slow call rate reaches its
+ * threshold (in percent), the breaker opens and calls fail immediately with a shared
+ * {@link CircuitBreakerOpenException}. After {@code openDuration} it lets {@code minimumCalls} trial calls
+ * through (half-open) and closes or opens again depending on their outcome. If the trial calls have not all
+ * completed within {@code maxHalfOpenDuration} (by default {@code openDuration}), the breaker opens again, so a
+ * trial that never completes cannot keep it half-open forever.
+ * <p>
+ * Each state is a separate object swapped in by CAS, so the counters of a previous state are never
+ * reset under a concurrent caller.
+ *
+ * @see FutureExtensions#withCircuitBreaker(Supplier, CircuitBreaker)
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private static final int RECORDED = 1;
+    private static final int FAILURE = 2;
+    private static final int SLOW = 4;
+
+    private final int windowSize;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final double slowCallRateThreshold;
+    private final long slowCallNanos;
+    private final long openNanos;
+    private final long maxHalfOpenNanos;
+    private final LongSupplier clock;
+
+    private final AtomicReference<Phase> phase;
+
+    public CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold,
+                          long openDuration, TimeUnit unit) {
+        this(windowSize, minimumCalls, failureRateThreshold, 100, Long.MAX_VALUE, openDuration, unit);
+    }
+
+    /**
+     * @param slowCallDuration calls taking at least this long count as slow; same unit as openDuration
+     */
+    public CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold,
+                          double slowCallRateThreshold, long slowCallDuration,
+                          long openDuration, TimeUnit unit) {
+        this(windowSize, minimumCalls, failureRateThreshold, slowCallRateThreshold, slowCallDuration,
+            openDuration, openDuration, unit);
+    }
+
+    /**
+     * @param slowCallDuration    calls taking at least this long count as slow; same unit as openDuration
+     * @param maxHalfOpenDuration how long to wait for the trial calls before opening again
+     */
+    public CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold,
+                          double slowCallRateThreshold, long slowCallDuration,
+                          long openDuration, long maxHalfOpenDuration, TimeUnit unit) {
+        this(windowSize, minimumCalls, failureRateThreshold, slowCallRateThreshold, slowCallDuration,
+            openDuration, maxHalfOpenDuration, unit, System::nanoTime);
+    }
+
+    CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold,
+                   double slowCallRateThreshold, long slowCallDuration,
+                   long openDuration, long maxHalfOpenDuration, TimeUnit unit, LongSupplier clock) {
+        if (windowSize < 1) {
+            throw new IllegalArgumentException("windowSize: " + windowSize);
+        }
+        if (minimumCalls < 1 || minimumCalls > windowSize) {
+            throw new IllegalArgumentException("minimumCalls: " + minimumCalls);
+        }
+        if (!(failureRateThreshold > 0 && failureRateThreshold <= 100)) {
+            throw new IllegalArgumentException("failureRateThreshold: " + failureRateThreshold);
+        }
+        if (!(slowCallRateThreshold > 0 && slowCallRateThreshold <= 100)) {
+            throw new IllegalArgumentException("slowCallRateThreshold: " + slowCallRateThreshold);
+        }
+        if (maxHalfOpenDuration < 0) {
+            throw new IllegalArgumentException("maxHalfOpenDuration: " + maxHalfOpenDuration);
+        }
+        this.windowSize = windowSize;
+        this.minimumCalls = minimumCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.slowCallNanos = unit.toNanos(slowCallDuration);
+        this.openNanos = unit.toNanos(openDuration);
+        this.maxHalfOpenNanos = unit.toNanos(maxHalfOpenDuration);
+        this.clock = requireNonNull(clock);
+        this.phase = new AtomicReference<>(new Closed());
+    }
+
+    /**
+     * run task unless the circuit is open
+     */
+    public <T> CompletableFuture<T> call(Supplier<? extends CompletableFuture<T>> task) {
+        requireNonNull(task);
+        Phase p = acquirePermission();
+        if (p == null) {
+            return FutureExtensions.exceptionallyFuture(CircuitBreakerOpenException.INSTANCE);
+        }
+        long start = clock.getAsLong();
+        CompletableFuture<T> future;
+        try {
+            future = requireNonNull(task.get());
+        } catch (Throwable ex) {
+            onResult(p, start, false);
+            return FutureExtensions.exceptionallyFuture(ex);
+        }
+        return future.whenComplete((t, e) -> onResult(p, start, e == null));
+    }
+
+    public State state() {
+        return phase.get().state();
+    }
+
+    /**
+     * @return the phase the call is admitted in, or null if rejected
+     */
+    private Phase acquirePermission() {
+        for (;;) {
+            Phase p = phase.get();
+            if (p instanceof Closed) {
+                return p;
+            }
+            if (p instanceof Open) {
+                if (clock.getAsLong() - ((Open) p).openedAt < openNanos) {
+                    return null;
+                }
+                phase.compareAndSet(p, new HalfOpen());
+                continue;
+            }
+            HalfOpen h = (HalfOpen) p;
+            for (;;) {
+                int n = h.permits.get();
+                if (n <= 0) {
+                    // trial calls still outstanding; give up on them after maxHalfOpenDuration
+                    if (clock.getAsLong() - h.startedAt >= maxHalfOpenNanos) {
+                        open(h);
+                    }
+                    return null;
+                }
+                if (h.permits.compareAndSet(n, n - 1)) {
+                    return p;
+                }
+            }
+        }
+    }
+
+    private void onResult(Phase admitted, long start, boolean success) {
+        // results of calls admitted in an earlier phase are ignored
+        if (phase.get() != admitted) {
+            return;
+        }
+        int outcome = RECORDED;
+        if (!success) {
+            outcome |= FAILURE;
+        }
+        if (clock.getAsLong() - start >= slowCallNanos) {
+            outcome |= SLOW;
+        }
+        admitted.record(outcome);
+    }
+
+    private boolean exceedsThreshold(int calls, int failures, int slowCalls) {
+        return failures * 100.0 >= failureRateThreshold * calls
+            || slowCalls * 100.0 >= slowCallRateThreshold * calls;
+    }
+
+    private void open(Phase from) {
+        phase.compareAndSet(from, new Open(clock.getAsLong()));
+    }
+
+
+    private interface Phase {
+        State state();
+
+        void record(int outcome);
+    }
+
+    private final class Closed implements Phase {
+        final AtomicIntegerArray ring = new AtomicIntegerArray(windowSize);
+        final AtomicLong index = new AtomicLong();
+        final AtomicInteger calls = new AtomicInteger();
+        final AtomicInteger failures = new AtomicInteger();
+        final AtomicInteger slowCalls = new AtomicInteger();
+
+        @Override
+        public State state() {
+            return State.CLOSED;
+        }
+
+        @Override
+        public void record(int outcome) {
+            int old = ring.getAndSet((int) (index.getAndIncrement() % windowSize), outcome);
+            int c = old == 0 ? calls.incrementAndGet() : calls.get();
+            int f = update(failures, old, outcome, FAILURE);
+            int s = update(slowCalls, old, outcome, SLOW);
+            if (c >= minimumCalls && exceedsThreshold(c, f, s)) {
+                open(this);
+            }
+        }
+
+        private int update(AtomicInteger counter, int old, int outcome, int flag) {
+            int delta = ((outcome & flag) != 0 ? 1 : 0) - ((old & flag) != 0 ? 1 : 0);
+            return delta == 0 ? counter.get() : counter.addAndGet(delta);
+        }
+    }
+
+    private static final class Open implements Phase {
+        final long openedAt;
+
+        Open(long openedAt) {
+            this.openedAt = openedAt;
+        }
+
+        @Override
+        public State state() {
+            return State.OPEN;
+        }
+
+        @Override
+        public void record(int outcome) {
+        }
+    }
+
+    private final class HalfOpen implements Phase {
+        final long startedAt = clock.getAsLong();
+        final AtomicInteger permits = new AtomicInteger(minimumCalls);
+        final AtomicInteger completed = new AtomicInteger();
+        final AtomicInteger failures = new AtomicInteger();
+        final AtomicInteger slowCalls = new AtomicInteger();
+
+        @Override
+        public State state() {
+            return State.HALF_OPEN;
+        }
+
+        @Override
+        public void record(int outcome) {
+            if ((outcome & FAILURE) != 0) {
+                failures.incrementAndGet();
+            }
+            if ((outcome & SLOW) != 0) {
+                slowCalls.incrementAndGet();
+            }
+            if (completed.incrementAndGet() == minimumCalls) {
+                if (exceedsThreshold(minimumCalls, failures.get(), slowCalls.get())) {
+                    open(this);
+                } else {
+                    phase.compareAndSet(this, new Closed());
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Stackless exception shared by all calls rejected while the circuit is open
+     */
+    public static class CircuitBreakerOpenException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        static final CircuitBreakerOpenException INSTANCE = new CircuitBreakerOpenException();
+
+        private CircuitBreakerOpenException() {
+            super("circuit breaker is open", null, false, false);
+        }
+    }
+
+}
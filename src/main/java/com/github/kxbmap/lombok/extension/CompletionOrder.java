@@ -0,0 +1,89 @@
+/*
+ * Copyright 2014 Tsukasa Kitachi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.kxbmap.lombok.extension;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Iterator over futures in the order they complete, blocking in {@link #next()} until one does.
+ * <p>
+ * Completions are pushed onto an MPSC queue sized to the input, so offers never fail;
+ * the iterating thread is the single consumer.
+ */
+final class CompletionOrder<T> implements Iterator<CompletableFuture<T>> {
+
+    private final MpscArrayQueue<CompletableFuture<T>> completed;
+    private int remaining;
+    private volatile Thread waiter;
+
+    CompletionOrder(Collection<CompletableFuture<T>> futures) {
+        this.completed = new MpscArrayQueue<>(Math.max(1, futures.size()));
+        this.remaining = futures.size();
+        for (CompletableFuture<T> future : futures) {
+            future.whenComplete((t, e) -> {
+                completed.offer(future);
+                Thread w = waiter;
+                if (w != null) {
+                    LockSupport.unpark(w);
+                }
+            });
+        }
+    }
+
+    int remaining() {
+        return remaining;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return remaining > 0;
+    }
+
+    /**
+     * @throws CompletionException with InterruptedException as the cause if interrupted while waiting
+     */
+    @Override
+    public CompletableFuture<T> next() {
+        if (remaining == 0) {
+            throw new NoSuchElementException();
+        }
+        CompletableFuture<T> future;
+        while ((future = completed.poll()) == null) {
+            waiter = Thread.currentThread();
+            // re-check after publishing the waiter; a completion between the two polls will unpark us
+            if ((future = completed.poll()) == null) {
+                LockSupport.park(this);
+            }
+            waiter = null;
+            if (future != null) {
+                break;
+            }
+            if (Thread.interrupted()) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(new InterruptedException());
+            }
+        }
+        remaining--;
+        return future;
+    }
+
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2014 Tsukasa Kitachi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.kxbmap.lombok.extension;
+
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Absolute point in time, on the {@link System#nanoTime()} clock, by which a request must complete.
+ * <p>
+ * Set once at the edge and pass it down the chain instead of per-call timeouts.
+ */
+public final class Deadline implements Comparable<Deadline> {
+
+    /**
+     * far enough away to never expire, near enough to never overflow
+     */
+    private static final long MAX_NANOS = Long.MAX_VALUE / 2;
+
+    private final long nanoTime;
+
+    private Deadline(long nanoTime) {
+        this.nanoTime = nanoTime;
+    }
+
+    public static Deadline after(long duration, TimeUnit unit) {
+        return new Deadline(System.nanoTime() + Math.min(unit.toNanos(duration), MAX_NANOS));
+    }
+
+    public static Deadline none() {
+        return after(MAX_NANOS, TimeUnit.NANOSECONDS);
+    }
+
+    public boolean isExpired() {
+        return nanoTime - System.nanoTime() <= 0;
+    }
+
+    /**
+     * time remaining; negative once expired
+     */
+    public long timeRemaining(TimeUnit unit) {
+        return unit.convert(nanoTime - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * the earlier of this and other
+     */
+    public Deadline min(Deadline other) {
+        return compareTo(other) <= 0 ? this : other;
+    }
+
+    @Override
+    public int compareTo(Deadline other) {
+        return Long.signum(nanoTime - requireNonNull(other).nanoTime);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof Deadline && ((Deadline) obj).nanoTime == nanoTime;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(nanoTime);
+    }
+
+    @Override
+    public String toString() {
+        return "Deadline(" + timeRemaining(TimeUnit.MILLISECONDS) + "ms remaining)";
+    }
+
+
+    /**
+     * Stackless exception shared by all operations that miss their deadline
+     */
+    public static class DeadlineExceededException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        static final DeadlineExceededException INSTANCE = new DeadlineExceededException();
+
+        private DeadlineExceededException() {
+            super("deadline exceeded", null, false, false);
+        }
+    }
+
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright 2014 Tsukasa Kitachi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.kxbmap.lombok.extension;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Single-threaded executor for ordered completion callbacks.
+ * <p>
+ * Tasks from other threads go through a bounded lock-free MPSC array queue, so submitting takes no lock and
+ * allocates no node. Tasks submitted from the loop thread itself go to a thread-confined queue instead, which
+ * also means the loop never blocks on its own full queue. Tasks are drained in batches.
+ */
+public class EventLoopExecutor extends AbstractExecutorService {
+
+    /**
+     * how the loop thread waits for tasks while idle
+     */
+    public enum WaitStrategy {
+        /**
+         * park until a task is submitted
+         */
+        PARK,
+        /**
+         * busy spin; lowest latency, burns a core
+         */
+        SPIN,
+        /**
+         * spin with {@link Thread#yield()}
+         */
+        YIELD
+    }
+
+    public static final int DEFAULT_CAPACITY = 1024;
+    public static final int DEFAULT_BATCH_SIZE = 64;
+
+    private static final int RUNNING = 0;
+    private static final int SHUTDOWN = 1;
+    private static final int STOP = 2;
+
+    private final MpscArrayQueue<Runnable> queue;
+    private final ArrayDeque<Runnable> localQueue = new ArrayDeque<>();
+    private final WaitStrategy waitStrategy;
+    private final int batchSize;
+    private final Thread thread;
+    private final CountDownLatch terminated = new CountDownLatch(1);
+    // submitters between their state check and the end of their offer
+    private final AtomicInteger producers = new AtomicInteger();
+
+    private volatile int state = RUNNING;
+    private volatile boolean parked;
+    // set by the loop thread around each poll, so that shutdownNow can take over the queue
+    private volatile boolean polling;
+
+    public EventLoopExecutor() {
+        this(DEFAULT_CAPACITY, WaitStrategy.PARK);
+    }
+
+    public EventLoopExecutor(int capacity, WaitStrategy waitStrategy) {
+        this(capacity, waitStrategy, DEFAULT_BATCH_SIZE, Executors.defaultThreadFactory());
+    }
+
+    public EventLoopExecutor(int capacity, WaitStrategy waitStrategy, int batchSize, ThreadFactory threadFactory) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize: " + batchSize);
+        }
+        this.queue = new MpscArrayQueue<>(capacity);
+        this.waitStrategy = requireNonNull(waitStrategy);
+        this.batchSize = batchSize;
+        this.thread = requireNonNull(threadFactory.newThread(this::runLoop));
+        thread.start();
+    }
+
+    /**
+     * Execute the task on the loop thread.
+     * <p>
+     * Blocks (yielding) while the queue is full.
+     */
+    @Override
+    public void execute(Runnable command) {
+        requireNonNull(command);
+        if (inEventLoop()) {
+            if (state != RUNNING) {
+                throw new RejectedExecutionException("EventLoopExecutor has been shut down");
+            }
+            localQueue.add(command);
+            return;
+        }
+        // counted before the state check, so the loop does not terminate between the check and the offer
+        producers.incrementAndGet();
+        try {
+            for (;;) {
+                if (state != RUNNING) {
+                    throw new RejectedExecutionException("EventLoopExecutor has been shut down");
+                }
+                if (queue.offer(command)) {
+                    break;
+                }
+                Thread.yield();
+            }
+        } finally {
+            producers.decrementAndGet();
+        }
+        if (parked) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * whether the current thread is the loop thread
+     */
+    public boolean inEventLoop() {
+        return Thread.currentThread() == thread;
+    }
+
+    /**
+     * Previously submitted tasks are executed, but no new tasks will be accepted.
+     */
+    @Override
+    public void shutdown() {
+        if (state == RUNNING) {
+            state = SHUTDOWN;
+        }
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * Stops the loop after the running task, without waiting for it, and returns the tasks that never ran.
+     * <p>
+     * Tasks submitted from the loop thread itself are only returned when called on the loop thread; otherwise
+     * they are dropped, and futures waiting on them never complete.
+     */
+    @Override
+    public synchronized List<Runnable> shutdownNow() {
+        state = STOP;
+        thread.interrupt();
+        List<Runnable> tasks = new ArrayList<>();
+        if (inEventLoop()) {
+            tasks.addAll(localQueue);
+            localQueue.clear();
+        }
+        // the loop thread no longer polls once it sees STOP, and submitters in flight are about to reject
+        while (polling || producers.get() != 0) {
+            Thread.yield();
+        }
+        Runnable task;
+        while ((task = queue.poll()) != null) {
+            tasks.add(task);
+        }
+        return tasks;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return state != RUNNING;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return terminated.getCount() == 0;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return terminated.await(timeout, unit);
+    }
+
+
+    private void runLoop() {
+        try {
+            for (;;) {
+                if (drain() > 0) {
+                    continue;
+                }
+                int s = state;
+                if (s == STOP) {
+                    return;
+                }
+                if (s == SHUTDOWN) {
+                    if (producers.get() == 0) {
+                        // no more tasks can be accepted; run what is left
+                        while (drain() > 0) {
+                        }
+                        return;
+                    }
+                    Thread.yield();
+                } else {
+                    await();
+                }
+            }
+        } finally {
+            terminated.countDown();
+        }
+    }
+
+    private int drain() {
+        int n = 0;
+        Runnable task;
+        while (n < batchSize && (task = poll()) != null) {
+            run(task);
+            n++;
+        }
+        // only the tasks that were already there; new local tasks wait for the next round
+        for (int i = localQueue.size(); i > 0 && state != STOP; i--) {
+            run(localQueue.poll());
+            n++;
+        }
+        return n;
+    }
+
+    private Runnable poll() {
+        polling = true;
+        try {
+            return state == STOP ? null : queue.poll();
+        } finally {
+            polling = false;
+        }
+    }
+
+    private void await() {
+        switch (waitStrategy) {
+            case PARK:
+                Thread.interrupted();
+                parked = true;
+                if (queue.isEmpty() && state == RUNNING) {
+                    LockSupport.park(this);
+                }
+                parked = false;
+                break;
+            case YIELD:
+                Thread.yield();
+                break;
+            case SPIN:
+                break;
+        }
+    }
+
+    private static void run(Runnable task) {
+        try {
+            task.run();
+        } catch (Throwable ex) {
+            Thread t = Thread.currentThread();
+            t.getUncaughtExceptionHandler().uncaughtException(t, ex);
+        }
+    }
+
+}
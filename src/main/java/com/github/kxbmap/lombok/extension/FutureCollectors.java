@@ -0,0 +1,93 @@
+/*
+ * Copyright 2014 Tsukasa Kitachi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.kxbmap.lombok.extension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BinaryOperator;
+import java.util.stream.Collector;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Collectors over streams of futures.
+ * <p>
+ * Each partition accumulates a plain list of futures. Merging partitions links their lists without copying
+ * either, and the finisher flattens them once and creates the combined future.
+ */
+public class FutureCollectors {
+
+    /**
+     * collect futures to a future of their values in encounter order, failing with the first failure
+     */
+    public static <T> Collector<CompletableFuture<T>, ?, CompletableFuture<List<T>>> allOf() {
+        return Collector.of(
+            Chunks<CompletableFuture<T>>::new,
+            Chunks::add,
+            Chunks::merge,
+            chunks -> FutureExtensions.gather(chunks.toList()));
+    }
+
+    /**
+     * collect futures to a future of their values folded with op as they complete
+     *
+     * @param op associative, commutative and side-effect free
+     */
+    public static <T> Collector<CompletableFuture<T>, ?, CompletableFuture<T>> reducing(T identity,
+                                                                                          BinaryOperator<T> op) {
+        requireNonNull(op);
+        return Collector.of(
+            Chunks<CompletableFuture<T>>::new,
+            Chunks::add,
+            Chunks::merge,
+            chunks -> FutureExtensions.reduceAsync(chunks.toList(), identity, op),
+            Collector.Characteristics.UNORDERED);
+    }
+
+    private static final class Chunks<E> {
+        private final ArrayList<ArrayList<E>> chunks = new ArrayList<>();
+
+        void add(E e) {
+            if (chunks.isEmpty()) {
+                chunks.add(new ArrayList<>());
+            }
+            chunks.get(chunks.size() - 1).add(e);
+        }
+
+        Chunks<E> merge(Chunks<E> right) {
+            chunks.addAll(right.chunks);
+            return this;
+        }
+
+        List<E> toList() {
+            if (chunks.size() == 1) {
+                return chunks.get(0);
+            }
+            int size = 0;
+            for (List<E> chunk : chunks) {
+                size += chunk.size();
+            }
+            ArrayList<E> all = new ArrayList<>(size);
+            for (List<E> chunk : chunks) {
+                all.addAll(chunk);
+            }
+            return all;
+        }
+    }
+
+}
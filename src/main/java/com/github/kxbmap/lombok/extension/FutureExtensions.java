@@ -16,16 +16,45 @@
 
 package com.github.kxbmap.lombok.extension;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.DoubleAccumulator;
+import java.util.concurrent.atomic.LongAccumulator;
 import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
 import java.util.function.Consumer;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.Function;
+import java.util.function.LongBinaryOperator;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static com.github.kxbmap.lombok.extension.Deadline.DeadlineExceededException;
+import static java.util.Objects.requireNonNull;
 
 /**
  * @see lombok.experimental.ExtensionMethod
  */
 public class FutureExtensions {
 
+    private static final int TIMED_OUT = Integer.MIN_VALUE;
+
     public static <T> CompletableFuture<T> exceptionallyFuture(Throwable ex) {
         CompletableFuture<T> future = new CompletableFuture<>();
         future.completeExceptionally(ex);
@@ -51,6 +80,597 @@ public class FutureExtensions {
         return future.whenCompleteAsync(whenCompleteAction(onSuccess, onFailure), executor);
     }
 
+    /**
+     * whenCompleteAsync that runs the callback after previous callbacks with the same key
+     */
+    public static <T, K> CompletableFuture<T> whenCompleteAsync(CompletableFuture<T> future,
+                                                                K key,
+                                                                Consumer<? super T> onSuccess,
+                                                                Consumer<? super Throwable> onFailure,
+                                                                KeyedSequentialExecutor<K> executor) {
+        return future.whenCompleteAsync(whenCompleteAction(onSuccess, onFailure), executor.executorFor(key));
+    }
+
+    /**
+     * whenCompleteAsync that runs the callback inline if already running on the executor
+     */
+    public static <T> CompletableFuture<T> whenCompleteOn(CompletableFuture<T> future,
+                                                          Consumer<? super T> onSuccess,
+                                                          Consumer<? super Throwable> onFailure,
+                                                          TrampolineExecutor executor) {
+        return future.whenCompleteAsync(whenCompleteAction(onSuccess, onFailure), executor);
+    }
+
+
+    // fast paths for futures already completed normally
+
+    /**
+     * thenApply that applies mapper inline if future is already completed normally
+     */
+    public static <T, U> CompletableFuture<U> mapNow(CompletableFuture<T> future,
+                                                     Function<? super T, ? extends U> mapper) {
+        requireNonNull(mapper);
+        if (!isCompletedNormally(future)) {
+            return future.thenApply(mapper);
+        }
+        U u;
+        try {
+            u = mapper.apply(future.join());
+        } catch (Throwable ex) {
+            return exceptionallyFuture(wrap(ex));
+        }
+        return CompletableFuture.completedFuture(u);
+    }
+
+    /**
+     * thenCompose that returns the mapped future as is if future is already completed normally
+     */
+    public static <T, U> CompletableFuture<U> flatMapNow(CompletableFuture<T> future,
+                                                         Function<? super T, ? extends CompletableFuture<U>> mapper) {
+        requireNonNull(mapper);
+        if (!isCompletedNormally(future)) {
+            return future.thenCompose(mapper);
+        }
+        try {
+            return requireNonNull(mapper.apply(future.join()));
+        } catch (Throwable ex) {
+            return exceptionallyFuture(wrap(ex));
+        }
+    }
+
+    /**
+     * whenComplete that runs onSuccess inline and returns future itself if future is already completed normally
+     */
+    public static <T> CompletableFuture<T> whenCompleteNow(CompletableFuture<T> future,
+                                                           Consumer<? super T> onSuccess,
+                                                           Consumer<? super Throwable> onFailure) {
+        requireNonNull(onSuccess);
+        requireNonNull(onFailure);
+        if (!isCompletedNormally(future)) {
+            return whenComplete(future, onSuccess, onFailure);
+        }
+        try {
+            onSuccess.accept(future.join());
+        } catch (Throwable ex) {
+            return exceptionallyFuture(wrap(ex));
+        }
+        return future;
+    }
+
+    /**
+     * failure as the fallback stage would see it, so that handle and exceptionally get the same type either way
+     */
+    private static CompletionException wrap(Throwable ex) {
+        return ex instanceof CompletionException ? (CompletionException) ex : new CompletionException(ex);
+    }
+
+
+    // cancellation propagating
+
+    /**
+     * whenComplete whose returned future cancels future when cancelled
+     */
+    public static <T> CompletableFuture<T> whenCompleteCancellable(CompletableFuture<T> future,
+                                                                   Consumer<? super T> onSuccess,
+                                                                   Consumer<? super Throwable> onFailure) {
+        return cancelOnFailure(whenComplete(future, onSuccess, onFailure), Collections.singleton(future));
+    }
+
+    /**
+     * whenCompleteAsync whose returned future cancels future when cancelled
+     */
+    public static <T> CompletableFuture<T> whenCompleteAsyncCancellable(CompletableFuture<T> future,
+                                                                        Consumer<? super T> onSuccess,
+                                                                        Consumer<? super Throwable> onFailure) {
+        return cancelOnFailure(whenCompleteAsync(future, onSuccess, onFailure), Collections.singleton(future));
+    }
+
+    /**
+     * whenCompleteAsync whose returned future cancels future when cancelled
+     */
+    public static <T> CompletableFuture<T> whenCompleteAsyncCancellable(CompletableFuture<T> future,
+                                                                        Consumer<? super T> onSuccess,
+                                                                        Consumer<? super Throwable> onFailure,
+                                                                        Executor executor) {
+        return cancelOnFailure(whenCompleteAsync(future, onSuccess, onFailure, executor),
+            Collections.singleton(future));
+    }
+
+    /**
+     * Gather the results of futures in order.
+     * <p>
+     * Fails as soon as one of futures fails. Cancelling or failing the returned future cancels
+     * the futures still running.
+     */
+    public static <T> CompletableFuture<List<T>> allOfCancellable(Collection<CompletableFuture<T>> futures) {
+        return cancelOnFailure(gather(futures), futures);
+    }
+
+    /**
+     * Result of the first of futures to complete; the others are cancelled then.
+     * <p>
+     * Cancelling the returned future cancels all of futures.
+     */
+    public static <T> CompletableFuture<T> anyOfCancellable(Collection<CompletableFuture<T>> futures) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        for (CompletableFuture<T> future : futures) {
+            future.whenComplete((t, e) -> {
+                if (e == null) {
+                    result.complete(t);
+                } else {
+                    result.completeExceptionally(e);
+                }
+            });
+        }
+        result.whenComplete((t, e) -> cancelAll(futures));
+        return result;
+    }
+
+
+    // deadline aware
+
+    /**
+     * future that fails with DeadlineExceededException if future does not complete before the deadline
+     */
+    public static <T> CompletableFuture<T> withDeadline(CompletableFuture<T> future, Deadline deadline) {
+        return withDeadline(future, deadline, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Future that fails with DeadlineExceededException if future does not complete before the deadline.
+     * <p>
+     * The failure is delivered, and dependent stages run, on executor rather than on the shared timer thread.
+     */
+    public static <T> CompletableFuture<T> withDeadline(CompletableFuture<T> future, Deadline deadline,
+                                                        Executor executor) {
+        requireNonNull(executor);
+        if (future.isDone()) {
+            return future;
+        }
+        long remaining = deadline.timeRemaining(TimeUnit.NANOSECONDS);
+        if (remaining <= 0) {
+            return exceptionallyFuture(DeadlineExceededException.INSTANCE);
+        }
+        CompletableFuture<T> result = new CompletableFuture<>();
+        ScheduledFuture<?> timer = SharedScheduler.schedule(
+            () -> result.completeExceptionally(DeadlineExceededException.INSTANCE), remaining, TimeUnit.NANOSECONDS,
+            executor);
+        future.whenComplete((t, e) -> {
+            timer.cancel(false);
+            if (e == null) {
+                result.complete(t);
+            } else {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * whenComplete that calls onFailure with DeadlineExceededException instead of onSuccess once the deadline
+     * has passed
+     */
+    public static <T> CompletableFuture<T> whenComplete(CompletableFuture<T> future,
+                                                        Consumer<? super T> onSuccess,
+                                                        Consumer<? super Throwable> onFailure,
+                                                        Deadline deadline) {
+        return withDeadline(future, deadline).whenComplete(whenCompleteAction(onSuccess, onFailure, deadline));
+    }
+
+    /**
+     * whenCompleteAsync that calls onFailure with DeadlineExceededException instead of onSuccess once the deadline
+     * has passed, including while waiting for the executor
+     */
+    public static <T> CompletableFuture<T> whenCompleteAsync(CompletableFuture<T> future,
+                                                             Consumer<? super T> onSuccess,
+                                                             Consumer<? super Throwable> onFailure,
+                                                             Executor executor,
+                                                             Deadline deadline) {
+        return withDeadline(future, deadline)
+            .whenCompleteAsync(whenCompleteAction(onSuccess, onFailure, deadline), executor);
+    }
+
+    /**
+     * Run task, retrying failures up to maxAttempts in total while the deadline has not passed.
+     * <p>
+     * Each attempt is bounded by the deadline as well.
+     */
+    public static <T> CompletableFuture<T> retry(Supplier<? extends CompletableFuture<T>> task,
+                                                 int maxAttempts,
+                                                 Deadline deadline) {
+        requireNonNull(task);
+        requireNonNull(deadline);
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts: " + maxAttempts);
+        }
+        CompletableFuture<T> result = new CompletableFuture<>();
+        attempt(task, maxAttempts, deadline, result);
+        return result;
+    }
+
+    /**
+     * allOfCancellable that fails with DeadlineExceededException, cancelling the futures still running,
+     * if they do not all complete before the deadline
+     */
+    public static <T> CompletableFuture<List<T>> allOfCancellable(Collection<CompletableFuture<T>> futures,
+                                                                  Deadline deadline) {
+        return cancelOnFailure(withDeadline(gather(futures), deadline), futures);
+    }
+
+
+    /**
+     * Gather what completes within the timeout.
+     * <p>
+     * The returned future completes when every input has completed, or at the timeout with the inputs still
+     * pending left as they are. A result at the timeout is delivered on the common pool.
+     */
+    public static <T> CompletableFuture<PartialResult<T>> collectWithin(Collection<CompletableFuture<T>> futures,
+                                                                        long timeout,
+                                                                        TimeUnit unit) {
+        return collectWithin(futures, timeout, unit, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Gather what completes within the timeout.
+     * <p>
+     * As {@link #collectWithin(Collection, long, TimeUnit)}, but a result at the timeout is delivered, and
+     * dependent stages run, on executor rather than on the shared timer thread.
+     */
+    public static <T> CompletableFuture<PartialResult<T>> collectWithin(Collection<CompletableFuture<T>> futures,
+                                                                        long timeout,
+                                                                        TimeUnit unit,
+                                                                        Executor executor) {
+        requireNonNull(executor);
+        List<CompletableFuture<T>> inputs = new ArrayList<>(futures);
+        AtomicReferenceArray<Object> outcomes = new AtomicReferenceArray<>(inputs.size());
+        CompletableFuture<PartialResult<T>> result = new CompletableFuture<>();
+        if (inputs.isEmpty()) {
+            result.complete(new PartialResult<>(inputs, outcomes));
+            return result;
+        }
+        // incomplete inputs, with TIMED_OUT set once the timer wins; whoever moves it off a live count finishes
+        AtomicInteger state = new AtomicInteger(inputs.size());
+        ScheduledFuture<?> timer = SharedScheduler.schedule(() -> {
+            int s;
+            do {
+                s = state.get();
+                if (s == 0) {
+                    return;
+                }
+            } while (!state.compareAndSet(s, s | TIMED_OUT));
+            result.complete(new PartialResult<>(inputs, outcomes));
+        }, timeout, unit, executor);
+
+        for (int i = 0; i < inputs.size(); i++) {
+            int index = i;
+            inputs.get(i).whenComplete((t, e) -> {
+                outcomes.set(index, e == null ? PartialResult.success(t) : PartialResult.failure(e));
+                int s;
+                do {
+                    s = state.get();
+                    if ((s & TIMED_OUT) != 0) {
+                        return;
+                    }
+                } while (!state.compareAndSet(s, s - 1));
+                if (s == 1) {
+                    timer.cancel(false);
+                    result.complete(new PartialResult<>(inputs, outcomes));
+                }
+            });
+        }
+        return result;
+    }
+
+
+    // reduce as completed
+
+    /**
+     * Fold each result into an accumulator as it arrives, without holding the results.
+     * <p>
+     * op must be associative, commutative and side-effect free; it may be applied more than once under contention.
+     */
+    public static <T> CompletableFuture<T> reduceAsync(Iterable<CompletableFuture<T>> futures,
+                                                       T identity,
+                                                       BinaryOperator<T> op) {
+        requireNonNull(op);
+        AtomicReference<T> acc = new AtomicReference<>(identity);
+        return foldAsync(futures, t -> acc.accumulateAndGet(t, op), acc::get);
+    }
+
+    /**
+     * reduceAsync to a long; op must be associative and commutative
+     */
+    public static CompletableFuture<Long> reduceAsyncToLong(Iterable<CompletableFuture<Long>> futures,
+                                                            long identity,
+                                                            LongBinaryOperator op) {
+        LongAccumulator acc = new LongAccumulator(op, identity);
+        return foldAsync(futures, acc::accumulate, acc::get);
+    }
+
+    /**
+     * reduceAsync to a double; op must be associative and commutative
+     */
+    public static CompletableFuture<Double> reduceAsyncToDouble(Iterable<CompletableFuture<Double>> futures,
+                                                                double identity,
+                                                                DoubleBinaryOperator op) {
+        DoubleAccumulator acc = new DoubleAccumulator(op, identity);
+        return foldAsync(futures, acc::accumulate, acc::get);
+    }
+
+
+    // completion order
+
+    /**
+     * Iterator over futures in the order they complete; next blocks until the next one completes
+     */
+    public static <T> Iterator<CompletableFuture<T>> inCompletionOrder(Collection<CompletableFuture<T>> futures) {
+        return new CompletionOrder<>(futures);
+    }
+
+    /**
+     * Sequential stream of futures in the order they complete
+     */
+    public static <T> Stream<CompletableFuture<T>> streamInCompletionOrder(Collection<CompletableFuture<T>> futures) {
+        CompletionOrder<T> it = new CompletionOrder<>(futures);
+        return StreamSupport.stream(Spliterators.spliterator(it, it.remaining(),
+            Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.SIZED), false);
+    }
+
+    /**
+     * Deliver futures to action in the order they complete, one at a time, on the completing threads.
+     *
+     * @return future completed after the last delivery, or with the exception thrown by action,
+     * after which nothing more is delivered
+     */
+    public static <T> CompletableFuture<Void> inCompletionOrder(Collection<CompletableFuture<T>> futures,
+                                                                Consumer<? super CompletableFuture<T>> action) {
+        requireNonNull(action);
+        int size = futures.size();
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        if (size == 0) {
+            done.complete(null);
+            return done;
+        }
+        MpscArrayQueue<CompletableFuture<T>> completed = new MpscArrayQueue<>(size);
+        // pending drain requests; the thread moving it off zero drains on behalf of the others
+        AtomicInteger wip = new AtomicInteger();
+        int[] delivered = new int[1];
+        for (CompletableFuture<T> future : futures) {
+            future.whenComplete((t, e) -> {
+                completed.offer(future);
+                if (wip.getAndIncrement() != 0) {
+                    return;
+                }
+                int missed = 1;
+                do {
+                    CompletableFuture<T> f;
+                    while ((f = completed.poll()) != null) {
+                        if (done.isDone()) {
+                            continue;
+                        }
+                        try {
+                            action.accept(f);
+                        } catch (Throwable ex) {
+                            done.completeExceptionally(ex);
+                            continue;
+                        }
+                        if (++delivered[0] == size) {
+                            done.complete(null);
+                        }
+                    }
+                    missed = wip.addAndGet(-missed);
+                } while (missed != 0);
+            });
+        }
+        return done;
+    }
+
+
+    /**
+     * Bulkhead that runs at most maxInFlight calls and queues at most maxQueued more
+     */
+    public static Bulkhead bulkhead(int maxInFlight, int maxQueued) {
+        return new Bulkhead(maxInFlight, maxQueued);
+    }
+
+    /**
+     * run task under the adaptive concurrency limit
+     */
+    public static <T> CompletableFuture<T> limited(Supplier<? extends CompletableFuture<T>> task,
+                                                   AdaptiveLimiter limiter) {
+        return limiter.call(task);
+    }
+
+    /**
+     * run task unless the circuit breaker is open
+     */
+    public static <T> CompletableFuture<T> withCircuitBreaker(Supplier<? extends CompletableFuture<T>> task,
+                                                              CircuitBreaker breaker) {
+        return breaker.call(task);
+    }
+
+    /**
+     * start task when the rate limiter has a permit
+     */
+    public static <T> CompletableFuture<T> rateLimited(Supplier<? extends CompletableFuture<T>> task,
+                                                       AsyncRateLimiter limiter) {
+        return limiter.call(task);
+    }
+
+    /**
+     * start task when the rate limiter has the permits
+     */
+    public static <T> CompletableFuture<T> rateLimited(Supplier<? extends CompletableFuture<T>> task,
+                                                       AsyncRateLimiter limiter,
+                                                       int permits) {
+        return limiter.call(permits, task);
+    }
+
+    /**
+     * Promise completed with the result of future
+     */
+    public static <T> Promise<T> toPromise(CompletableFuture<T> future) {
+        return Promise.fromFuture(future);
+    }
+
+    /**
+     * results of futures in order; fails as soon as one of futures fails
+     */
+    @SuppressWarnings("unchecked")
+    static <T> CompletableFuture<List<T>> gather(Collection<? extends CompletableFuture<? extends T>> futures) {
+        CompletableFuture<List<T>> result = new CompletableFuture<>();
+        Object[] values = new Object[futures.size()];
+        if (values.length == 0) {
+            result.complete((List<T>) Arrays.asList(values));
+            return result;
+        }
+        // each write to values happens-before the decrement that publishes it
+        AtomicInteger remaining = new AtomicInteger(values.length);
+        int i = 0;
+        for (CompletableFuture<? extends T> future : futures) {
+            int index = i++;
+            future.whenComplete((t, e) -> {
+                if (e != null) {
+                    result.completeExceptionally(e);
+                    return;
+                }
+                values[index] = t;
+                if (remaining.decrementAndGet() == 0) {
+                    result.complete((List<T>) Arrays.asList(values));
+                }
+            });
+        }
+        return result;
+    }
+
+    private static <T, R> CompletableFuture<R> foldAsync(Iterable<CompletableFuture<T>> futures,
+                                                         Consumer<? super T> fold,
+                                                         Supplier<? extends R> finisher) {
+        CompletableFuture<R> result = new CompletableFuture<>();
+        // inputs not yet folded, plus one until all of them are registered
+        AtomicInteger pending = new AtomicInteger(1);
+        for (CompletableFuture<T> future : futures) {
+            pending.incrementAndGet();
+            future.whenComplete((t, e) -> {
+                if (e != null) {
+                    result.completeExceptionally(e);
+                    return;
+                }
+                try {
+                    fold.accept(t);
+                } catch (Throwable ex) {
+                    result.completeExceptionally(ex);
+                    return;
+                }
+                if (pending.decrementAndGet() == 0) {
+                    result.complete(finisher.get());
+                }
+            });
+            if (result.isDone()) {
+                return result;
+            }
+        }
+        if (pending.decrementAndGet() == 0) {
+            result.complete(finisher.get());
+        }
+        return result;
+    }
+
+    private static <T> CompletableFuture<T> cancelOnFailure(CompletableFuture<T> dependent,
+                                                            Collection<? extends CompletableFuture<?>> sources) {
+        dependent.whenComplete((t, e) -> {
+            if (e != null) {
+                cancelAll(sources);
+            }
+        });
+        return dependent;
+    }
+
+    private static void cancelAll(Collection<? extends CompletableFuture<?>> futures) {
+        for (CompletableFuture<?> future : futures) {
+            future.cancel(true);
+        }
+    }
+
+    private static <T> void attempt(Supplier<? extends CompletableFuture<T>> task,
+                                    int remaining,
+                                    Deadline deadline,
+                                    CompletableFuture<T> result) {
+        // attempts that have already failed are retried in this loop rather than from whenComplete,
+        // so a task failing synchronously does not grow the stack with every attempt
+        for (int left = remaining; ; left--) {
+            if (result.isDone()) {
+                return;
+            }
+            if (deadline.isExpired()) {
+                result.completeExceptionally(DeadlineExceededException.INSTANCE);
+                return;
+            }
+            CompletableFuture<T> future;
+            try {
+                future = requireNonNull(task.get());
+            } catch (Throwable ex) {
+                future = exceptionallyFuture(ex);
+            }
+            CompletableFuture<T> bounded = withDeadline(future, deadline);
+            if (bounded.isCompletedExceptionally() && left > 1 && !deadline.isExpired()) {
+                continue;
+            }
+            int attempts = left;
+            bounded.whenComplete((t, e) -> {
+                if (e == null) {
+                    result.complete(t);
+                } else if (attempts > 1 && !deadline.isExpired()) {
+                    attempt(task, attempts - 1, deadline, result);
+                } else {
+                    result.completeExceptionally(e);
+                }
+            });
+            return;
+        }
+    }
+
+    private static boolean isCompletedNormally(CompletableFuture<?> future) {
+        return future.isDone() && !future.isCompletedExceptionally();
+    }
+
+    private static <T> BiConsumer<T, Throwable> whenCompleteAction(Consumer<? super T> onSuccess,
+                                                                   Consumer<? super Throwable> onFailure,
+                                                                   Deadline deadline) {
+        requireNonNull(deadline);
+        return (t, e) -> {
+            if (e == null && deadline.isExpired()) {
+                onFailure.accept(DeadlineExceededException.INSTANCE);
+                throw DeadlineExceededException.INSTANCE;
+            }
+            if (e == null) {
+                onSuccess.accept(t);
+            } else {
+                onFailure.accept(e);
+            }
+        };
+    }
+
     private static <T> BiConsumer<T, Throwable> whenCompleteAction(Consumer<? super T> onSuccess,
                                                                    Consumer<? super Throwable> onFailure) {
         return (t, e) -> {
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2014 Tsukasa Kitachi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.kxbmap.lombok.extension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Scope that bounds the lifetime of a fan-out of futures.
+ * <p>
+ * Tasks forked in the scope are tracked; the first failure cancels all the others, and tasks forked after
+ * that are not started. {@link #join()} gathers the results of all forked tasks, and {@link #close()}
+ * cancels whatever is still running, so use
+ * <pre>
+ * try (FutureScope&lt;T&gt; scope = new FutureScope&lt;&gt;()) {
+ *     scope.fork(...);
+ *     scope.fork(...);
+ *     return scope.join().get();
+ * }
+ * </pre>
+ * to wait for the results, or just close the scope to abandon them. Cancelling a task that has already started
+ * does not interrupt it.
+ */
+public class FutureScope<T> implements AutoCloseable {
+
+    private final Executor executor;
+    private final ConcurrentLinkedQueue<CompletableFuture<T>> forked = new ConcurrentLinkedQueue<>();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private volatile boolean sealed;
+
+    public FutureScope() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public FutureScope(Executor executor) {
+        this.executor = requireNonNull(executor);
+    }
+
+    /**
+     * run task on the executor of this scope
+     *
+     * @throws IllegalStateException if the scope is joined or closed
+     */
+    public CompletableFuture<T> fork(Supplier<? extends T> task) {
+        requireNonNull(task);
+        return track(() -> CompletableFuture.supplyAsync(task::get, executor));
+    }
+
+    /**
+     * start asynchronous task on the calling thread
+     *
+     * @throws IllegalStateException if the scope is joined or closed
+     */
+    public CompletableFuture<T> forkAsync(Supplier<? extends CompletableFuture<T>> task) {
+        requireNonNull(task);
+        return track(() -> {
+            try {
+                return requireNonNull(task.get());
+            } catch (Throwable ex) {
+                return FutureExtensions.exceptionallyFuture(ex);
+            }
+        });
+    }
+
+    /**
+     * Results of all forked tasks in fork order.
+     * <p>
+     * Fails with the first failure in the scope. No more tasks can be forked after this.
+     * Cancelling the returned future cancels the tasks still running.
+     */
+    public CompletableFuture<List<T>> join() {
+        sealed = true;
+        CompletableFuture<List<T>> result = new CompletableFuture<>();
+        FutureExtensions.<T>gather(new ArrayList<>(forked)).whenComplete((list, e) -> {
+            if (e == null) {
+                result.complete(list);
+            } else {
+                // siblings cancelled by the first failure must not hide it
+                Throwable first = failure.get();
+                result.completeExceptionally(first != null ? first : e);
+            }
+        });
+        result.whenComplete((list, e) -> {
+            if (e != null) {
+                cancelAll();
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Cancels the tasks still running. No more tasks can be forked after this.
+     */
+    @Override
+    public void close() {
+        sealed = true;
+        cancelAll();
+    }
+
+    private CompletableFuture<T> track(Supplier<CompletableFuture<T>> start) {
+        if (sealed) {
+            throw new IllegalStateException("scope is already joined or closed");
+        }
+        if (failure.get() != null) {
+            CompletableFuture<T> cancelled = new CompletableFuture<>();
+            cancelled.cancel(false);
+            return cancelled;
+        }
+        CompletableFuture<T> future = start.get();
+        forked.add(future);
+        future.whenComplete((t, e) -> {
+            if (e != null && failure.compareAndSet(null, e)) {
+                cancelAll();
+            }
+        });
+        // failed while starting
+        if (failure.get() != null) {
+            future.cancel(true);
+        }
+        return future;
+    }
+
+    private void cancelAll() {
+        for (CompletableFuture<T> future : forked) {
+            future.cancel(true);
+        }
+    }
+
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2014 Tsukasa Kitachi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.kxbmap.lombok.extension;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Runs tasks with the same key one at a time in submission order, and tasks with different keys in parallel
+ * on a shared executor.
+ * <p>
+ * Each active key has a serial queue that is scheduled on the executor while it has pending tasks.
+ * A queue is removed from the map as soon as it becomes idle. If the executor rejects the first scheduling of
+ * a key, the task is withdrawn and the exception is thrown to the submitter; if it rejects a re-scheduling, the
+ * thread already running the key keeps running it.
+ */
+public class KeyedSequentialExecutor<K> {
+
+    public static final int DEFAULT_BATCH_SIZE = 64;
+
+    private static final int RETIRED = -1;
+
+    private final Executor executor;
+    private final int batchSize;
+    private final ConcurrentHashMap<K, Serial> serials = new ConcurrentHashMap<>();
+
+    public KeyedSequentialExecutor(Executor executor) {
+        this(executor, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * @param batchSize max tasks run for one key before yielding the thread to other keys
+     */
+    public KeyedSequentialExecutor(Executor executor, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize: " + batchSize);
+        }
+        this.executor = requireNonNull(executor);
+        this.batchSize = batchSize;
+    }
+
+    public void execute(K key, Runnable command) {
+        requireNonNull(key);
+        requireNonNull(command);
+        for (;;) {
+            Serial serial = serials.computeIfAbsent(key, Serial::new);
+            int n = serial.size.get();
+            if (n == RETIRED) {
+                serials.remove(key, serial);
+                continue;
+            }
+            if (serial.size.compareAndSet(n, n + 1)) {
+                serial.tasks.add(command);
+                if (n == 0) {
+                    try {
+                        executor.execute(serial);
+                    } catch (RuntimeException | Error ex) {
+                        serial.withdraw(command);
+                        throw ex;
+                    }
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Executor view that runs tasks with the given key
+     */
+    public Executor executorFor(K key) {
+        requireNonNull(key);
+        return command -> execute(key, command);
+    }
+
+    /**
+     * number of keys with pending or running tasks
+     */
+    public int activeKeys() {
+        return serials.size();
+    }
+
+
+    private final class Serial implements Runnable {
+        final K key;
+        final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        /**
+         * pending tasks, or RETIRED once removed from the map
+         */
+        final AtomicInteger size = new AtomicInteger();
+
+        Serial(K key) {
+            this.key = key;
+        }
+
+        @Override
+        public void run() {
+            for (;;) {
+                for (int i = 0; i < batchSize; i++) {
+                    Runnable task;
+                    // size is incremented before the task is added
+                    while ((task = tasks.poll()) == null) {
+                        Thread.yield();
+                    }
+                    try {
+                        task.run();
+                    } catch (Throwable ex) {
+                        Thread t = Thread.currentThread();
+                        t.getUncaughtExceptionHandler().uncaughtException(t, ex);
+                    }
+                    if (size.decrementAndGet() == 0) {
+                        retire();
+                        return;
+                    }
+                }
+                try {
+                    executor.execute(this);
+                    return;
+                } catch (RuntimeException ex) {
+                    // rejected; nobody else will run the pending tasks, so keep running them here
+                }
+            }
+        }
+
+        /**
+         * take back the task whose scheduling was rejected; the serial was never scheduled, so nothing polls
+         */
+        void withdraw(Runnable command) {
+            tasks.remove(command);
+            if (size.decrementAndGet() == 0) {
+                retire();
+            } else {
+                // tasks submitted meanwhile count on this scheduling
+                run();
+            }
+        }
+
+        private void retire() {
+            if (size.compareAndSet(0, RETIRED)) {
+                serials.remove(key, this);
+            }
+        }
+    }
+
+}
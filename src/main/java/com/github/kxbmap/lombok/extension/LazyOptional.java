@@ -0,0 +1,102 @@
+/*
+ * Copyright 2014 Tsukasa Kitachi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.kxbmap.lombok.extension;
+
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Optional computed at most once, on first access.
+ * <p>
+ * map, flatMap and filter return new lazy optionals without evaluating this one.
+ * The supplier is released after evaluation; if it throws, the next access calls it again.
+ *
+ * @see OptionalExtensions#lazily(Supplier)
+ */
+public final class LazyOptional<T> {
+
+    /**
+     * null once evaluated; value is written before it is cleared
+     */
+    private volatile Supplier<? extends Optional<? extends T>> supplier;
+    private Optional<T> value;
+
+    LazyOptional(Supplier<? extends Optional<? extends T>> supplier) {
+        this.supplier = requireNonNull(supplier);
+    }
+
+    /**
+     * evaluate if not yet evaluated
+     */
+    @SuppressWarnings("unchecked")
+    public Optional<T> get() {
+        if (supplier != null) {
+            synchronized (this) {
+                Supplier<? extends Optional<? extends T>> s = supplier;
+                if (s != null) {
+                    value = (Optional<T>) requireNonNull(s.get());
+                    supplier = null;
+                }
+            }
+        }
+        return value;
+    }
+
+    public boolean isEvaluated() {
+        return supplier == null;
+    }
+
+    public boolean isPresent() {
+        return get().isPresent();
+    }
+
+    public boolean isAbsent() {
+        return !get().isPresent();
+    }
+
+    public <U> LazyOptional<U> map(Function<? super T, ? extends U> mapper) {
+        requireNonNull(mapper);
+        return new LazyOptional<>(() -> get().map(mapper));
+    }
+
+    public <U> LazyOptional<U> flatMap(Function<? super T, Optional<U>> mapper) {
+        requireNonNull(mapper);
+        return new LazyOptional<>(() -> get().flatMap(mapper));
+    }
+
+    public LazyOptional<T> filter(Predicate<? super T> predicate) {
+        requireNonNull(predicate);
+        return new LazyOptional<>(() -> get().filter(predicate));
+    }
+
+    public <R> R fold(Function<? super T, ? extends R> mapper, Supplier<? extends R> other) {
+        return OptionalExtensions.fold(get(), mapper, other);
+    }
+
+    /**
+     * does not evaluate
+     */
+    @Override
+    public String toString() {
+        return isEvaluated() ? "Lazy" + value : "LazyOptional.unevaluated";
+    }
+
+}
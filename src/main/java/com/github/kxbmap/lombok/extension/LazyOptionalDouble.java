@@ -0,0 +1,111 @@
+/*
+ * Copyright 2014 Tsukasa Kitachi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.kxbmap.lombok.extension;
+
+import java.util.OptionalDouble;
+import java.util.function.DoubleFunction;
+import java.util.function.DoublePredicate;
+import java.util.function.DoubleSupplier;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.Supplier;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * OptionalDouble computed at most once, on first access.
+ * <p>
+ * map, flatMap and filter return new lazy optionals without evaluating this one.
+ * The supplier is released after evaluation; if it throws, the next access calls it again.
+ *
+ * @see OptionalDoubleExtensions#lazily(Supplier)
+ */
+public final class LazyOptionalDouble {
+
+    /**
+     * null once evaluated; value is written before it is cleared
+     */
+    private volatile Supplier<OptionalDouble> supplier;
+    private OptionalDouble value;
+
+    LazyOptionalDouble(Supplier<OptionalDouble> supplier) {
+        this.supplier = requireNonNull(supplier);
+    }
+
+    /**
+     * evaluate if not yet evaluated
+     */
+    public OptionalDouble get() {
+        if (supplier != null) {
+            synchronized (this) {
+                Supplier<OptionalDouble> s = supplier;
+                if (s != null) {
+                    value = requireNonNull(s.get());
+                    supplier = null;
+                }
+            }
+        }
+        return value;
+    }
+
+    public boolean isEvaluated() {
+        return supplier == null;
+    }
+
+    public boolean isPresent() {
+        return get().isPresent();
+    }
+
+    public boolean isAbsent() {
+        return !get().isPresent();
+    }
+
+    public LazyOptionalDouble map(DoubleUnaryOperator mapper) {
+        requireNonNull(mapper);
+        return new LazyOptionalDouble(() -> OptionalDoubleExtensions.map(get(), mapper));
+    }
+
+    public <T> LazyOptional<T> mapToObj(DoubleFunction<? extends T> mapper) {
+        requireNonNull(mapper);
+        return new LazyOptional<>(() -> OptionalDoubleExtensions.mapToObj(get(), mapper));
+    }
+
+    public LazyOptionalDouble flatMap(DoubleFunction<OptionalDouble> mapper) {
+        requireNonNull(mapper);
+        return new LazyOptionalDouble(() -> OptionalDoubleExtensions.flatMap(get(), mapper));
+    }
+
+    public LazyOptionalDouble filter(DoublePredicate predicate) {
+        requireNonNull(predicate);
+        return new LazyOptionalDouble(() -> {
+            OptionalDouble opt = get();
+            return opt.isPresent() && predicate.test(opt.getAsDouble()) ? opt : OptionalDouble.empty();
+        });
+    }
+
+    public double fold(DoubleUnaryOperator mapper, DoubleSupplier other) {
+        return OptionalDoubleExtensions.fold(get(), mapper, other);
+    }
+
+    /**
+     * does not evaluate
+     */
+    @Override
+    public String toString() {
+        return isEvaluated() ? "Lazy" + value : "LazyOptionalDouble.unevaluated";
+    }
+
+}
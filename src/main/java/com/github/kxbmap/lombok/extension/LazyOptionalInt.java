@@ -0,0 +1,111 @@
+/*
+ * Copyright 2014 Tsukasa Kitachi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.kxbmap.lombok.extension;
+
+import java.util.OptionalInt;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+import java.util.function.IntSupplier;
+import java.util.function.IntUnaryOperator;
+import java.util.function.Supplier;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * OptionalInt computed at most once, on first access.
+ * <p>
+ * map, flatMap and filter return new lazy optionals without evaluating this one.
+ * The supplier is released after evaluation; if it throws, the next access calls it again.
+ *
+ * @see OptionalIntExtensions#lazily(Supplier)
+ */
+public final class LazyOptionalInt {
+
+    /**
+     * null once evaluated; value is written before it is cleared
+     */
+    private volatile Supplier<OptionalInt> supplier;
+    private OptionalInt value;
+
+    LazyOptionalInt(Supplier<OptionalInt> supplier) {
+        this.supplier = requireNonNull(supplier);
+    }
+
+    /**
+     * evaluate if not yet evaluated
+     */
+    public OptionalInt get() {
+        if (supplier != null) {
+            synchronized (this) {
+                Supplier<OptionalInt> s = supplier;
+                if (s != null) {
+                    value = requireNonNull(s.get());
+                    supplier = null;
+                }
+            }
+        }
+        return value;
+    }
+
+    public boolean isEvaluated() {
+        return supplier == null;
+    }
+
+    public boolean isPresent() {
+        return get().isPresent();
+    }
+
+    public boolean isAbsent() {
+        return !get().isPresent();
+    }
+
+    public LazyOptionalInt map(IntUnaryOperator mapper) {
+        requireNonNull(mapper);
+        return new LazyOptionalInt(() -> OptionalIntExtensions.map(get(), mapper));
+    }
+
+    public <T> LazyOptional<T> mapToObj(IntFunction<? extends T> mapper) {
+        requireNonNull(mapper);
+        return new LazyOptional<>(() -> OptionalIntExtensions.mapToObj(get(), mapper));
+    }
+
+    public LazyOptionalInt flatMap(IntFunction<OptionalInt> mapper) {
+        requireNonNull(mapper);
+        return new LazyOptionalInt(() -> OptionalIntExtensions.flatMap(get(), mapper));
+    }
+
+    public LazyOptionalInt filter(IntPredicate predicate) {
+        requireNonNull(predicate);
+        return new LazyOptionalInt(() -> {
+            OptionalInt opt = get();
+            return opt.isPresent() && predicate.test(opt.getAsInt()) ? opt : OptionalInt.empty();
+        });
+    }
+
+    public int fold(IntUnaryOperator mapper, IntSupplier other) {
+        return OptionalIntExtensions.fold(get(), mapper, other);
+    }
+
+    /**
+     * does not evaluate
+     */
+    @Override
+    public String toString() {
+        return isEvaluated() ? "Lazy" + value : "LazyOptionalInt.unevaluated";
+    }
+
+}
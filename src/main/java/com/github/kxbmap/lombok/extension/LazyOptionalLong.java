@@ -0,0 +1,111 @@
+/*
+ * Copyright 2014 Tsukasa Kitachi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.kxbmap.lombok.extension;
+
+import java.util.OptionalLong;
+import java.util.function.LongFunction;
+import java.util.function.LongPredicate;
+import java.util.function.LongSupplier;
+import java.util.function.LongUnaryOperator;
+import java.util.function.Supplier;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * OptionalLong computed at most once, on first access.
+ * <p>
+ * map, flatMap and filter return new lazy optionals without evaluating this one.
+ * The supplier is released after evaluation; if it throws, the next access calls it again.
+ *
+ * @see OptionalLongExtensions#lazily(Supplier)
+ */
+public final class LazyOptionalLong {
+
+    /**
+     * null once evaluated; value is written before it is cleared
+     */
+    private volatile Supplier<OptionalLong> supplier;
+    private OptionalLong value;
+
+    LazyOptionalLong(Supplier<OptionalLong> supplier) {
+        this.supplier = requireNonNull(supplier);
+    }
+
+    /**
+     * evaluate if not yet evaluated
+     */
+    public OptionalLong get() {
+        if (supplier != null) {
+            synchronized (this) {
+                Supplier<OptionalLong> s = supplier;
+                if (s != null) {
+                    value = requireNonNull(s.get());
+                    supplier = null;
+                }
+            }
+        }
+        return value;
+    }
+
+    public boolean isEvaluated() {
+        return supplier == null;
+    }
+
+    public boolean isPresent() {
+        return get().isPresent();
+    }
+
+    public boolean isAbsent() {
+        return !get().isPresent();
+    }
+
+    public LazyOptionalLong map(LongUnaryOperator mapper) {
+        requireNonNull(mapper);
+        return new LazyOptionalLong(() -> OptionalLongExtensions.map(get(), mapper));
+    }
+
+    public <T> LazyOptional<T> mapToObj(LongFunction<? extends T> mapper) {
+        requireNonNull(mapper);
+        return new LazyOptional<>(() -> OptionalLongExtensions.mapToObj(get(), mapper));
+    }
+
+    public LazyOptionalLong flatMap(LongFunction<OptionalLong> mapper) {
+        requireNonNull(mapper);
+        return new LazyOptionalLong(() -> OptionalLongExtensions.flatMap(get(), mapper));
+    }
+
+    public LazyOptionalLong filter(LongPredicate predicate) {
+        requireNonNull(predicate);
+        return new LazyOptionalLong(() -> {
+            OptionalLong opt = get();
+            return opt.isPresent() && predicate.test(opt.getAsLong()) ? opt : OptionalLong.empty();
+        });
+    }
+
+    public long fold(LongUnaryOperator mapper, LongSupplier other) {
+        return OptionalLongExtensions.fold(get(), mapper, other);
+    }
+
+    /**
+     * does not evaluate
+     */
+    @Override
+    public String toString() {
+        return isEvaluated() ? "Lazy" + value : "LazyOptionalLong.unevaluated";
+    }
+
+}
@@ -0,0 +1,289 @@
+/*
+ * Copyright 2014 Tsukasa Kitachi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.kxbmap.lombok.extension;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.NoSuchElementException;
+import java.util.OptionalLong;
+import java.util.function.LongBinaryOperator;
+import java.util.function.LongSupplier;
+import java.util.function.LongUnaryOperator;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * File-backed column of OptionalLong, memory-mapped in chunks so it can exceed 2GB and live off-heap.
+ * <p>
+ * Layout, little-endian on every platform so files can be moved between machines: the magic number
+ * {@code "OPTL"} and the format version as two ints, the length, then the values, then a presence bitmap of
+ * one bit per value. Absent values read as zero. Not thread-safe.
+ */
+public final class MappedOptionalLongColumn implements Closeable {
+
+    static final int DEFAULT_CHUNK_SHIFT = 30;
+
+    /**
+     * "OPTL" read as a little-endian int
+     */
+    static final int MAGIC = 0x4C54504F;
+    static final int VERSION = 1;
+
+    private static final long HEADER_BYTES = 16;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] chunks;
+    private final int chunkShift;
+    private final long chunkMask;
+    private final long length;
+    private final long bitmapOffset;
+
+    private MappedOptionalLongColumn(FileChannel channel, FileChannel.MapMode mode, long length, int chunkShift)
+        throws IOException {
+        if (chunkShift < 3 || chunkShift > DEFAULT_CHUNK_SHIFT) {
+            throw new IllegalArgumentException("chunkShift: " + chunkShift);
+        }
+        this.channel = channel;
+        this.chunkShift = chunkShift;
+        this.chunkMask = (1L << chunkShift) - 1;
+        this.length = length;
+        this.bitmapOffset = HEADER_BYTES + length * 8;
+        long size = fileSize(length);
+        this.chunks = new MappedByteBuffer[(int) ((size + chunkMask) >>> chunkShift)];
+        for (int c = 0; c < chunks.length; c++) {
+            long start = (long) c << chunkShift;
+            chunks[c] = channel.map(mode, start, Math.min(chunkMask + 1, size - start));
+            chunks[c].order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    /**
+     * create or truncate the file as a writable column of absent values
+     */
+    public static MappedOptionalLongColumn create(Path path, long length) throws IOException {
+        return create(path, length, DEFAULT_CHUNK_SHIFT);
+    }
+
+    static MappedOptionalLongColumn create(Path path, long length, int chunkShift) throws IOException {
+        if (length < 0 || length > (Long.MAX_VALUE - HEADER_BYTES) / 9) {
+            throw new IllegalArgumentException("length: " + length);
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            // extend with zeros; the mapping must not exceed the file
+            channel.write(ByteBuffer.allocate(1), fileSize(length) - 1);
+            MappedOptionalLongColumn column =
+                new MappedOptionalLongColumn(channel, FileChannel.MapMode.READ_WRITE, length, chunkShift);
+            column.putLong(0, (long) VERSION << 32 | MAGIC & 0xFFFFFFFFL);
+            column.putLong(8, length);
+            return column;
+        } catch (IOException | RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * open an existing column read-only
+     */
+    public static MappedOptionalLongColumn open(Path path) throws IOException {
+        return open(path, DEFAULT_CHUNK_SHIFT);
+    }
+
+    static MappedOptionalLongColumn open(Path path, int chunkShift) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate((int) HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0) {
+                    break;
+                }
+            }
+            if (header.hasRemaining() || header.getInt(0) != MAGIC) {
+                throw new IOException("not a column: " + path);
+            }
+            int version = header.getInt(4);
+            if (version != VERSION) {
+                throw new IOException("unsupported column version " + version + ": " + path);
+            }
+            long length = header.getLong(8);
+            if (length < 0 || length > (Long.MAX_VALUE - HEADER_BYTES) / 9 || channel.size() != fileSize(length)) {
+                throw new IOException("not a column: " + path);
+            }
+            return new MappedOptionalLongColumn(channel, FileChannel.MapMode.READ_ONLY, length, chunkShift);
+        } catch (IOException | RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    public long length() {
+        return length;
+    }
+
+    public boolean isPresent(long index) {
+        checkIndex(index);
+        return (word(index >>> 6) & (1L << index)) != 0;
+    }
+
+    public boolean isAbsent(long index) {
+        return !isPresent(index);
+    }
+
+    public OptionalLong get(long index) {
+        return isPresent(index) ? OptionalLong.of(value(index)) : OptionalLong.empty();
+    }
+
+    /**
+     * @throws NoSuchElementException if absent
+     */
+    public long getAsLong(long index) {
+        if (!isPresent(index)) {
+            throw new NoSuchElementException("No value present");
+        }
+        return value(index);
+    }
+
+    public void set(long index, long value) {
+        checkIndex(index);
+        putLong(HEADER_BYTES + index * 8, value);
+        long w = index >>> 6;
+        putLong(bitmapOffset + w * 8, word(w) | 1L << index);
+    }
+
+    public void set(long index, OptionalLong opt) {
+        if (opt.isPresent()) {
+            set(index, opt.getAsLong());
+        } else {
+            clear(index);
+        }
+    }
+
+    /**
+     * make element at index absent
+     */
+    public void clear(long index) {
+        checkIndex(index);
+        putLong(HEADER_BYTES + index * 8, 0);
+        long w = index >>> 6;
+        putLong(bitmapOffset + w * 8, word(w) & ~(1L << index));
+    }
+
+
+    // map / fold
+
+    /**
+     * map element at index as by {@link OptionalLongExtensions#map(OptionalLong, LongUnaryOperator)}
+     */
+    public OptionalLong map(long index, LongUnaryOperator mapper) {
+        requireNonNull(mapper);
+        return isPresent(index) ? OptionalLong.of(mapper.applyAsLong(value(index))) : OptionalLong.empty();
+    }
+
+    /**
+     * fold element at index as by {@link OptionalLongExtensions#fold(OptionalLong, LongUnaryOperator, LongSupplier)}
+     */
+    public long fold(long index, LongUnaryOperator mapper, LongSupplier other) {
+        requireNonNull(mapper);
+        requireNonNull(other);
+        return isPresent(index) ? mapper.applyAsLong(value(index)) : other.getAsLong();
+    }
+
+
+    // scan
+
+    /**
+     * reduce present values in index order, reading the bitmap a word at a time
+     */
+    public long reducePresent(long identity, LongBinaryOperator op) {
+        requireNonNull(op);
+        long acc = identity;
+        long words = (length + 63) >>> 6;
+        for (long w = 0; w < words; w++) {
+            for (long bits = word(w); bits != 0; bits &= bits - 1) {
+                acc = op.applyAsLong(acc, value((w << 6) + Long.numberOfTrailingZeros(bits)));
+            }
+        }
+        return acc;
+    }
+
+    public long sum() {
+        return reducePresent(0, Long::sum);
+    }
+
+    public long countPresent() {
+        long count = 0;
+        long words = (length + 63) >>> 6;
+        for (long w = 0; w < words; w++) {
+            count += Long.bitCount(word(w));
+        }
+        return count;
+    }
+
+    /**
+     * flush changes to the file
+     */
+    public void force() {
+        for (MappedByteBuffer chunk : chunks) {
+            chunk.force();
+        }
+    }
+
+    /**
+     * Close the file. Mapped memory is released once the column is unreachable.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static long fileSize(long length) {
+        return HEADER_BYTES + length * 8 + ((length + 63) >>> 6) * 8;
+    }
+
+    private long value(long index) {
+        return getLong(HEADER_BYTES + index * 8);
+    }
+
+    private long word(long w) {
+        return getLong(bitmapOffset + w * 8);
+    }
+
+    // every long is 8-byte aligned and chunks are a power of two of at least 8 bytes, so none straddles a chunk
+
+    private long getLong(long offset) {
+        return chunks[(int) (offset >>> chunkShift)].getLong((int) (offset & chunkMask));
+    }
+
+    private void putLong(long offset, long value) {
+        chunks[(int) (offset >>> chunkShift)].putLong((int) (offset & chunkMask), value);
+    }
+
+    private void checkIndex(long index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("index: " + index);
+        }
+    }
+
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2014 Tsukasa Kitachi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.kxbmap.lombok.extension;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Bounded lock-free multi-producer/single-consumer queue.
+ * <p>
+ * Producers claim a slot by CAS on the producer index and publish the element with a lazy set;
+ * {@link #poll()} must only be called from a single consumer thread.
+ */
+final class MpscArrayQueue<E> {
+
+    private final AtomicReferenceArray<E> buffer;
+    private final int mask;
+    private final AtomicLong producerIndex = new AtomicLong();
+    private final AtomicLong consumerIndex = new AtomicLong();
+
+    MpscArrayQueue(int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("capacity: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.buffer = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * @return false if the queue is full
+     */
+    boolean offer(E e) {
+        requireNonNull(e);
+        for (;;) {
+            long p = producerIndex.get();
+            if (p - consumerIndex.get() > mask) {
+                return false;
+            }
+            if (producerIndex.compareAndSet(p, p + 1)) {
+                buffer.lazySet((int) p & mask, e);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @return null if the queue is empty
+     */
+    E poll() {
+        long c = consumerIndex.get();
+        int i = (int) c & mask;
+        E e = buffer.get(i);
+        if (e == null) {
+            if (c == producerIndex.get()) {
+                return null;
+            }
+            // a producer has claimed the slot but not published yet
+            while ((e = buffer.get(i)) == null) {
+                Thread.yield();
+            }
+        }
+        buffer.lazySet(i, null);
+        consumerIndex.lazySet(c + 1);
+        return e;
+    }
+
+    boolean isEmpty() {
+        return consumerIndex.get() == producerIndex.get();
+    }
+
+    int size() {
+        return (int) (producerIndex.get() - consumerIndex.get());
+    }
+
+}
@@ -0,0 +1,538 @@
+/*
+ * Copyright 2014 Tsukasa Kitachi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.kxbmap.lombok.extension;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.OptionalDouble;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Compact binary encoding of optionals for ByteBuffer and DataOutput/DataInput.
+ * <p>
+ * A single optional is a presence tag byte followed, if present, by the value: ints and longs as zigzag
+ * varints, doubles as 8 bytes, and objects by an {@link ElementCodec}.
+ * An array is a varint length, a presence bitmap of one bit per element, and the present values.
+ * <p>
+ * String and array lengths are limited to {@link #MAX_LENGTH}. Malformed or truncated input fails with
+ * IllegalArgumentException when read from a ByteBuffer, and with StreamCorruptedException or EOFException
+ * when read from a DataInput. A DataInput reader allocates in proportion to the bytes actually received,
+ * not to the length claimed by the input.
+ */
+public class OptionalCodec {
+
+    /**
+     * maximum length of an encoded string in bytes, or of an array in elements
+     */
+    public static final int MAX_LENGTH = 1 << 24;
+
+    private static final byte ABSENT = 0;
+    private static final byte PRESENT = 1;
+
+    // initial buffer size for reading a DataInput; grown as bytes arrive
+    private static final int CHUNK_SIZE = 8192;
+
+
+    /**
+     * Encoding of a non-null element of Optional
+     */
+    public interface ElementCodec<T> {
+
+        void write(ByteBuffer buf, T value);
+
+        T read(ByteBuffer buf);
+
+        void write(DataOutput out, T value) throws IOException;
+
+        T read(DataInput in) throws IOException;
+    }
+
+    /**
+     * varint length followed by UTF-8 bytes
+     */
+    public static final ElementCodec<String> UTF8 = new ElementCodec<String>() {
+        @Override
+        public void write(ByteBuffer buf, String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(buf, checkWriteLength(bytes.length));
+            buf.put(bytes);
+        }
+
+        @Override
+        public String read(ByteBuffer buf) {
+            byte[] bytes = new byte[checkLength(readVarLong(buf), buf.remaining())];
+            buf.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public void write(DataOutput out, String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(out, checkWriteLength(bytes.length));
+            out.write(bytes);
+        }
+
+        @Override
+        public String read(DataInput in) throws IOException {
+            byte[] bytes = readBytes(in, checkLength(readVarLong(in)));
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    };
+
+
+    // ByteBuffer
+
+    public static void write(ByteBuffer buf, OptionalInt opt) {
+        if (opt.isPresent()) {
+            buf.put(PRESENT);
+            writeVarLong(buf, zigzag(opt.getAsInt()));
+        } else {
+            buf.put(ABSENT);
+        }
+    }
+
+    public static void write(ByteBuffer buf, OptionalLong opt) {
+        if (opt.isPresent()) {
+            buf.put(PRESENT);
+            writeVarLong(buf, zigzag(opt.getAsLong()));
+        } else {
+            buf.put(ABSENT);
+        }
+    }
+
+    public static void write(ByteBuffer buf, OptionalDouble opt) {
+        if (opt.isPresent()) {
+            buf.put(PRESENT);
+            buf.putDouble(opt.getAsDouble());
+        } else {
+            buf.put(ABSENT);
+        }
+    }
+
+    public static <T> void write(ByteBuffer buf, Optional<T> opt, ElementCodec<? super T> codec) {
+        requireNonNull(codec);
+        if (opt.isPresent()) {
+            buf.put(PRESENT);
+            codec.write(buf, opt.get());
+        } else {
+            buf.put(ABSENT);
+        }
+    }
+
+    public static OptionalInt readInt(ByteBuffer buf) {
+        return isPresent(get(buf)) ? OptionalInt.of(unzigzag(readVarInt(buf))) : OptionalInt.empty();
+    }
+
+    public static OptionalLong readLong(ByteBuffer buf) {
+        return isPresent(get(buf)) ? OptionalLong.of(unzigzag(readVarLong(buf))) : OptionalLong.empty();
+    }
+
+    public static OptionalDouble readDouble(ByteBuffer buf) {
+        return isPresent(get(buf)) ? OptionalDouble.of(getDouble(buf)) : OptionalDouble.empty();
+    }
+
+    public static <T> Optional<T> read(ByteBuffer buf, ElementCodec<? extends T> codec) {
+        requireNonNull(codec);
+        return isPresent(get(buf)) ? Optional.of(codec.read(buf)) : Optional.empty();
+    }
+
+
+    // ByteBuffer bulk
+
+    public static void write(ByteBuffer buf, OptionalInt[] opts) {
+        writeBitmap(buf, opts.length, i -> opts[i].isPresent());
+        for (OptionalInt opt : opts) {
+            if (opt.isPresent()) {
+                writeVarLong(buf, zigzag(opt.getAsInt()));
+            }
+        }
+    }
+
+    public static void write(ByteBuffer buf, OptionalLong[] opts) {
+        writeBitmap(buf, opts.length, i -> opts[i].isPresent());
+        for (OptionalLong opt : opts) {
+            if (opt.isPresent()) {
+                writeVarLong(buf, zigzag(opt.getAsLong()));
+            }
+        }
+    }
+
+    public static void write(ByteBuffer buf, OptionalDouble[] opts) {
+        writeBitmap(buf, opts.length, i -> opts[i].isPresent());
+        for (OptionalDouble opt : opts) {
+            if (opt.isPresent()) {
+                buf.putDouble(opt.getAsDouble());
+            }
+        }
+    }
+
+    public static OptionalInt[] readIntArray(ByteBuffer buf) {
+        int length = checkLength(readVarLong(buf), buf.remaining() * 8L);
+        byte[] bitmap = readBitmap(buf, length);
+        OptionalInt[] opts = new OptionalInt[length];
+        for (int i = 0; i < length; i++) {
+            opts[i] = isSet(bitmap, i) ? OptionalInt.of(unzigzag(readVarInt(buf))) : OptionalInt.empty();
+        }
+        return opts;
+    }
+
+    public static OptionalLong[] readLongArray(ByteBuffer buf) {
+        int length = checkLength(readVarLong(buf), buf.remaining() * 8L);
+        byte[] bitmap = readBitmap(buf, length);
+        OptionalLong[] opts = new OptionalLong[length];
+        for (int i = 0; i < length; i++) {
+            opts[i] = isSet(bitmap, i) ? OptionalLong.of(unzigzag(readVarLong(buf))) : OptionalLong.empty();
+        }
+        return opts;
+    }
+
+    public static OptionalDouble[] readDoubleArray(ByteBuffer buf) {
+        int length = checkLength(readVarLong(buf), buf.remaining() * 8L);
+        byte[] bitmap = readBitmap(buf, length);
+        OptionalDouble[] opts = new OptionalDouble[length];
+        for (int i = 0; i < length; i++) {
+            opts[i] = isSet(bitmap, i) ? OptionalDouble.of(getDouble(buf)) : OptionalDouble.empty();
+        }
+        return opts;
+    }
+
+
+    // DataOutput / DataInput
+
+    public static void write(DataOutput out, OptionalInt opt) throws IOException {
+        if (opt.isPresent()) {
+            out.writeByte(PRESENT);
+            writeVarLong(out, zigzag(opt.getAsInt()));
+        } else {
+            out.writeByte(ABSENT);
+        }
+    }
+
+    public static void write(DataOutput out, OptionalLong opt) throws IOException {
+        if (opt.isPresent()) {
+            out.writeByte(PRESENT);
+            writeVarLong(out, zigzag(opt.getAsLong()));
+        } else {
+            out.writeByte(ABSENT);
+        }
+    }
+
+    public static void write(DataOutput out, OptionalDouble opt) throws IOException {
+        if (opt.isPresent()) {
+            out.writeByte(PRESENT);
+            out.writeDouble(opt.getAsDouble());
+        } else {
+            out.writeByte(ABSENT);
+        }
+    }
+
+    public static <T> void write(DataOutput out, Optional<T> opt, ElementCodec<? super T> codec) throws IOException {
+        requireNonNull(codec);
+        if (opt.isPresent()) {
+            out.writeByte(PRESENT);
+            codec.write(out, opt.get());
+        } else {
+            out.writeByte(ABSENT);
+        }
+    }
+
+    public static OptionalInt readInt(DataInput in) throws IOException {
+        return isPresent(in) ? OptionalInt.of(unzigzag(readVarInt(in))) : OptionalInt.empty();
+    }
+
+    public static OptionalLong readLong(DataInput in) throws IOException {
+        return isPresent(in) ? OptionalLong.of(unzigzag(readVarLong(in))) : OptionalLong.empty();
+    }
+
+    public static OptionalDouble readDouble(DataInput in) throws IOException {
+        return isPresent(in) ? OptionalDouble.of(in.readDouble()) : OptionalDouble.empty();
+    }
+
+    public static <T> Optional<T> read(DataInput in, ElementCodec<? extends T> codec) throws IOException {
+        requireNonNull(codec);
+        return isPresent(in) ? Optional.of(codec.read(in)) : Optional.empty();
+    }
+
+
+    // DataOutput / DataInput bulk
+
+    public static void write(DataOutput out, OptionalInt[] opts) throws IOException {
+        writeBitmap(out, opts.length, i -> opts[i].isPresent());
+        for (OptionalInt opt : opts) {
+            if (opt.isPresent()) {
+                writeVarLong(out, zigzag(opt.getAsInt()));
+            }
+        }
+    }
+
+    public static void write(DataOutput out, OptionalLong[] opts) throws IOException {
+        writeBitmap(out, opts.length, i -> opts[i].isPresent());
+        for (OptionalLong opt : opts) {
+            if (opt.isPresent()) {
+                writeVarLong(out, zigzag(opt.getAsLong()));
+            }
+        }
+    }
+
+    public static void write(DataOutput out, OptionalDouble[] opts) throws IOException {
+        writeBitmap(out, opts.length, i -> opts[i].isPresent());
+        for (OptionalDouble opt : opts) {
+            if (opt.isPresent()) {
+                out.writeDouble(opt.getAsDouble());
+            }
+        }
+    }
+
+    public static OptionalInt[] readIntArray(DataInput in) throws IOException {
+        int length = checkLength(readVarLong(in));
+        byte[] bitmap = readBitmap(in, length);
+        OptionalInt[] opts = new OptionalInt[length];
+        for (int i = 0; i < length; i++) {
+            opts[i] = isSet(bitmap, i) ? OptionalInt.of(unzigzag(readVarInt(in))) : OptionalInt.empty();
+        }
+        return opts;
+    }
+
+    public static OptionalLong[] readLongArray(DataInput in) throws IOException {
+        int length = checkLength(readVarLong(in));
+        byte[] bitmap = readBitmap(in, length);
+        OptionalLong[] opts = new OptionalLong[length];
+        for (int i = 0; i < length; i++) {
+            opts[i] = isSet(bitmap, i) ? OptionalLong.of(unzigzag(readVarLong(in))) : OptionalLong.empty();
+        }
+        return opts;
+    }
+
+    public static OptionalDouble[] readDoubleArray(DataInput in) throws IOException {
+        int length = checkLength(readVarLong(in));
+        byte[] bitmap = readBitmap(in, length);
+        OptionalDouble[] opts = new OptionalDouble[length];
+        for (int i = 0; i < length; i++) {
+            opts[i] = isSet(bitmap, i) ? OptionalDouble.of(in.readDouble()) : OptionalDouble.empty();
+        }
+        return opts;
+    }
+
+
+    // varint
+
+    private static long zigzag(long n) {
+        return (n << 1) ^ (n >> 63);
+    }
+
+    private static long zigzag(int n) {
+        return ((n << 1) ^ (n >> 31)) & 0xFFFF_FFFFL;
+    }
+
+    private static long unzigzag(long n) {
+        return (n >>> 1) ^ -(n & 1);
+    }
+
+    private static int unzigzag(int n) {
+        return (n >>> 1) ^ -(n & 1);
+    }
+
+    private static void writeVarLong(ByteBuffer buf, long n) {
+        while ((n & ~0x7FL) != 0) {
+            buf.put((byte) (n | 0x80));
+            n >>>= 7;
+        }
+        buf.put((byte) n);
+    }
+
+    private static long readVarLong(ByteBuffer buf) {
+        long n = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = get(buf);
+            n |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return n;
+            }
+        }
+        throw new IllegalArgumentException("malformed varint");
+    }
+
+    private static int readVarInt(ByteBuffer buf) {
+        long n = readVarLong(buf);
+        if ((n & ~0xFFFF_FFFFL) != 0) {
+            throw new IllegalArgumentException("malformed varint");
+        }
+        return (int) n;
+    }
+
+    private static void writeVarLong(DataOutput out, long n) throws IOException {
+        while ((n & ~0x7FL) != 0) {
+            out.writeByte((int) (n | 0x80));
+            n >>>= 7;
+        }
+        out.writeByte((int) n);
+    }
+
+    private static long readVarLong(DataInput in) throws IOException {
+        long n = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            n |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return n;
+            }
+        }
+        throw new StreamCorruptedException("malformed varint");
+    }
+
+    private static int readVarInt(DataInput in) throws IOException {
+        long n = readVarLong(in);
+        if ((n & ~0xFFFF_FFFFL) != 0) {
+            throw new StreamCorruptedException("malformed varint");
+        }
+        return (int) n;
+    }
+
+
+    // helpers
+
+    private interface IndexPredicate {
+        boolean test(int index);
+    }
+
+    private static void writeBitmap(ByteBuffer buf, int length, IndexPredicate present) {
+        writeVarLong(buf, checkWriteLength(length));
+        for (int i = 0; i < length; i += 8) {
+            buf.put(bitmapByte(i, length, present));
+        }
+    }
+
+    private static void writeBitmap(DataOutput out, int length, IndexPredicate present) throws IOException {
+        writeVarLong(out, checkWriteLength(length));
+        for (int i = 0; i < length; i += 8) {
+            out.writeByte(bitmapByte(i, length, present));
+        }
+    }
+
+    private static byte bitmapByte(int from, int length, IndexPredicate present) {
+        int bits = 0;
+        for (int j = 0; j < 8 && from + j < length; j++) {
+            if (present.test(from + j)) {
+                bits |= 1 << j;
+            }
+        }
+        return (byte) bits;
+    }
+
+    private static byte[] readBitmap(ByteBuffer buf, int length) {
+        byte[] bitmap = new byte[(length + 7) >>> 3];
+        checkRemaining(buf, bitmap.length);
+        buf.get(bitmap);
+        return bitmap;
+    }
+
+    /**
+     * the array of elements is allocated only once the whole bitmap has arrived
+     */
+    private static byte[] readBitmap(DataInput in, int length) throws IOException {
+        return readBytes(in, (length + 7) >>> 3);
+    }
+
+    /**
+     * read length bytes into a buffer grown as they arrive, so a bogus length fails at end of input
+     * before a large allocation
+     */
+    private static byte[] readBytes(DataInput in, int length) throws IOException {
+        byte[] bytes = new byte[Math.min(length, CHUNK_SIZE)];
+        int n = 0;
+        for (;;) {
+            in.readFully(bytes, n, bytes.length - n);
+            n = bytes.length;
+            if (n == length) {
+                return bytes;
+            }
+            bytes = Arrays.copyOf(bytes, (int) Math.min(length, n * 2L));
+        }
+    }
+
+    private static byte get(ByteBuffer buf) {
+        checkRemaining(buf, 1);
+        return buf.get();
+    }
+
+    private static double getDouble(ByteBuffer buf) {
+        checkRemaining(buf, 8);
+        return buf.getDouble();
+    }
+
+    private static void checkRemaining(ByteBuffer buf, int n) {
+        if (buf.remaining() < n) {
+            throw new IllegalArgumentException("truncated input");
+        }
+    }
+
+    private static boolean isSet(byte[] bitmap, int index) {
+        return (bitmap[index >>> 3] & (1 << (index & 7))) != 0;
+    }
+
+    private static boolean isPresent(byte tag) {
+        if (tag == PRESENT) {
+            return true;
+        }
+        if (tag == ABSENT) {
+            return false;
+        }
+        throw new IllegalArgumentException("invalid tag: " + tag);
+    }
+
+    private static boolean isPresent(DataInput in) throws IOException {
+        byte tag = in.readByte();
+        if (tag == PRESENT) {
+            return true;
+        }
+        if (tag == ABSENT) {
+            return false;
+        }
+        throw new StreamCorruptedException("invalid tag: " + tag);
+    }
+
+    private static int checkLength(long length, long max) {
+        if (length < 0 || length > Math.min(max, MAX_LENGTH)) {
+            throw new IllegalArgumentException("invalid length: " + length);
+        }
+        return (int) length;
+    }
+
+    private static int checkLength(long length) throws IOException {
+        if (length < 0 || length > MAX_LENGTH) {
+            throw new StreamCorruptedException("invalid length: " + length);
+        }
+        return (int) length;
+    }
+
+    private static int checkWriteLength(int length) {
+        if (length > MAX_LENGTH) {
+            throw new IllegalArgumentException("length exceeds MAX_LENGTH: " + length);
+        }
+        return length;
+    }
+
+}
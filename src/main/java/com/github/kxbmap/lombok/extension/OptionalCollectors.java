@@ -0,0 +1,289 @@
+/*
+ * Copyright 2014 Tsukasa Kitachi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.kxbmap.lombok.extension;
+
+import java.util.DoubleSummaryStatistics;
+import java.util.IntSummaryStatistics;
+import java.util.LongSummaryStatistics;
+import java.util.Optional;
+import java.util.OptionalDouble;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
+import java.util.function.Predicate;
+import java.util.stream.Collector;
+
+/**
+ * Collectors over streams of optionals that skip absent values without boxing.
+ * <p>
+ * Accumulators are mutable per partition and merged by the combiner, so none allocates per element.
+ */
+public class OptionalCollectors {
+
+    private static final Collector.Characteristics[] UNORDERED_IDENTITY = {
+        Collector.Characteristics.UNORDERED, Collector.Characteristics.IDENTITY_FINISH
+    };
+
+
+    // summarizing
+
+    /**
+     * summary statistics of present values
+     */
+    public static Collector<OptionalInt, ?, IntSummaryStatistics> summarizingPresentInt() {
+        return Collector.of(
+            IntSummaryStatistics::new,
+            (stats, opt) -> {
+                if (opt.isPresent()) {
+                    stats.accept(opt.getAsInt());
+                }
+            },
+            (l, r) -> {
+                l.combine(r);
+                return l;
+            },
+            UNORDERED_IDENTITY);
+    }
+
+    /**
+     * summary statistics of present values
+     */
+    public static Collector<OptionalLong, ?, LongSummaryStatistics> summarizingPresentLong() {
+        return Collector.of(
+            LongSummaryStatistics::new,
+            (stats, opt) -> {
+                if (opt.isPresent()) {
+                    stats.accept(opt.getAsLong());
+                }
+            },
+            (l, r) -> {
+                l.combine(r);
+                return l;
+            },
+            UNORDERED_IDENTITY);
+    }
+
+    /**
+     * summary statistics of present values
+     */
+    public static Collector<OptionalDouble, ?, DoubleSummaryStatistics> summarizingPresentDouble() {
+        return Collector.of(
+            DoubleSummaryStatistics::new,
+            (stats, opt) -> {
+                if (opt.isPresent()) {
+                    stats.accept(opt.getAsDouble());
+                }
+            },
+            (l, r) -> {
+                l.combine(r);
+                return l;
+            },
+            UNORDERED_IDENTITY);
+    }
+
+
+    // countAbsent
+
+    /**
+     * count absent values
+     */
+    public static Collector<Optional<?>, ?, Long> countAbsent() {
+        return counting(opt -> !opt.isPresent());
+    }
+
+    /**
+     * count absent values
+     */
+    public static Collector<OptionalInt, ?, Long> countAbsentInt() {
+        return counting(opt -> !opt.isPresent());
+    }
+
+    /**
+     * count absent values
+     */
+    public static Collector<OptionalLong, ?, Long> countAbsentLong() {
+        return counting(opt -> !opt.isPresent());
+    }
+
+    /**
+     * count absent values
+     */
+    public static Collector<OptionalDouble, ?, Long> countAbsentDouble() {
+        return counting(opt -> !opt.isPresent());
+    }
+
+
+    // min / max
+
+    /**
+     * min of present values; empty if none is present
+     */
+    public static Collector<OptionalInt, ?, OptionalInt> minPresentInt() {
+        return Collector.of(
+            IntBox::new,
+            (box, opt) -> {
+                if (opt.isPresent()) {
+                    box.accept(box.present ? Math.min(opt.getAsInt(), box.value) : opt.getAsInt());
+                }
+            },
+            (l, r) -> r.present ? l.present ? l.accept(Math.min(l.value, r.value)) : r : l,
+            IntBox::get,
+            Collector.Characteristics.UNORDERED);
+    }
+
+    /**
+     * max of present values; empty if none is present
+     */
+    public static Collector<OptionalInt, ?, OptionalInt> maxPresentInt() {
+        return Collector.of(
+            IntBox::new,
+            (box, opt) -> {
+                if (opt.isPresent()) {
+                    box.accept(box.present ? Math.max(opt.getAsInt(), box.value) : opt.getAsInt());
+                }
+            },
+            (l, r) -> r.present ? l.present ? l.accept(Math.max(l.value, r.value)) : r : l,
+            IntBox::get,
+            Collector.Characteristics.UNORDERED);
+    }
+
+    /**
+     * min of present values; empty if none is present
+     */
+    public static Collector<OptionalLong, ?, OptionalLong> minPresentLong() {
+        return Collector.of(
+            LongBox::new,
+            (box, opt) -> {
+                if (opt.isPresent()) {
+                    box.accept(box.present ? Math.min(opt.getAsLong(), box.value) : opt.getAsLong());
+                }
+            },
+            (l, r) -> r.present ? l.present ? l.accept(Math.min(l.value, r.value)) : r : l,
+            LongBox::get,
+            Collector.Characteristics.UNORDERED);
+    }
+
+    /**
+     * max of present values; empty if none is present
+     */
+    public static Collector<OptionalLong, ?, OptionalLong> maxPresentLong() {
+        return Collector.of(
+            LongBox::new,
+            (box, opt) -> {
+                if (opt.isPresent()) {
+                    box.accept(box.present ? Math.max(opt.getAsLong(), box.value) : opt.getAsLong());
+                }
+            },
+            (l, r) -> r.present ? l.present ? l.accept(Math.max(l.value, r.value)) : r : l,
+            LongBox::get,
+            Collector.Characteristics.UNORDERED);
+    }
+
+    /**
+     * min of present values as by {@link Math#min(double, double)}; empty if none is present
+     */
+    public static Collector<OptionalDouble, ?, OptionalDouble> minPresentDouble() {
+        return Collector.of(
+            DoubleBox::new,
+            (box, opt) -> {
+                if (opt.isPresent()) {
+                    box.accept(box.present ? Math.min(opt.getAsDouble(), box.value) : opt.getAsDouble());
+                }
+            },
+            (l, r) -> r.present ? l.present ? l.accept(Math.min(l.value, r.value)) : r : l,
+            DoubleBox::get,
+            Collector.Characteristics.UNORDERED);
+    }
+
+    /**
+     * max of present values as by {@link Math#max(double, double)}; empty if none is present
+     */
+    public static Collector<OptionalDouble, ?, OptionalDouble> maxPresentDouble() {
+        return Collector.of(
+            DoubleBox::new,
+            (box, opt) -> {
+                if (opt.isPresent()) {
+                    box.accept(box.present ? Math.max(opt.getAsDouble(), box.value) : opt.getAsDouble());
+                }
+            },
+            (l, r) -> r.present ? l.present ? l.accept(Math.max(l.value, r.value)) : r : l,
+            DoubleBox::get,
+            Collector.Characteristics.UNORDERED);
+    }
+
+
+    private static <T> Collector<T, ?, Long> counting(Predicate<? super T> p) {
+        return Collector.of(
+            () -> new long[1],
+            (count, t) -> {
+                if (p.test(t)) {
+                    count[0]++;
+                }
+            },
+            (l, r) -> {
+                l[0] += r[0];
+                return l;
+            },
+            count -> count[0],
+            Collector.Characteristics.UNORDERED);
+    }
+
+    private static final class IntBox {
+        boolean present;
+        int value;
+
+        IntBox accept(int v) {
+            present = true;
+            value = v;
+            return this;
+        }
+
+        OptionalInt get() {
+            return present ? OptionalInt.of(value) : OptionalInt.empty();
+        }
+    }
+
+    private static final class LongBox {
+        boolean present;
+        long value;
+
+        LongBox accept(long v) {
+            present = true;
+            value = v;
+            return this;
+        }
+
+        OptionalLong get() {
+            return present ? OptionalLong.of(value) : OptionalLong.empty();
+        }
+    }
+
+    private static final class DoubleBox {
+        boolean present;
+        double value;
+
+        DoubleBox accept(double v) {
+            present = true;
+            value = v;
+            return this;
+        }
+
+        OptionalDouble get() {
+            return present ? OptionalDouble.of(value) : OptionalDouble.empty();
+        }
+    }
+
+}
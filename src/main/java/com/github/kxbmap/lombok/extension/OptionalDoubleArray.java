@@ -0,0 +1,194 @@
+/*
+ * Copyright 2014 Tsukasa Kitachi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.kxbmap.lombok.extension;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.OptionalDouble;
+import java.util.function.DoubleSupplier;
+import java.util.function.DoubleUnaryOperator;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Fixed-length array of OptionalDouble packed into a double[] of values and a long[] presence bitmap,
+ * about 8.1 bytes per element instead of a reference and an object each.
+ * <p>
+ * Not thread-safe.
+ */
+public final class OptionalDoubleArray {
+
+    private final double[] values;
+    private final long[] present;
+
+    /**
+     * array of absent values
+     */
+    public OptionalDoubleArray(int length) {
+        this(new double[length], new long[(length + 63) >>> 6]);
+    }
+
+    private OptionalDoubleArray(double[] values, long[] present) {
+        this.values = values;
+        this.present = present;
+    }
+
+    public static OptionalDoubleArray of(OptionalDouble... opts) {
+        OptionalDoubleArray array = new OptionalDoubleArray(opts.length);
+        for (int i = 0; i < opts.length; i++) {
+            array.set(i, opts[i]);
+        }
+        return array;
+    }
+
+    public int length() {
+        return values.length;
+    }
+
+    public boolean isPresent(int index) {
+        checkIndex(index);
+        return (present[index >>> 6] & (1L << index)) != 0;
+    }
+
+    public OptionalDouble get(int index) {
+        return isPresent(index) ? OptionalDouble.of(values[index]) : OptionalDouble.empty();
+    }
+
+    /**
+     * @throws NoSuchElementException if absent
+     */
+    public double getAsDouble(int index) {
+        if (!isPresent(index)) {
+            throw new NoSuchElementException("No value present");
+        }
+        return values[index];
+    }
+
+    public void set(int index, double value) {
+        checkIndex(index);
+        values[index] = value;
+        present[index >>> 6] |= 1L << index;
+    }
+
+    public void set(int index, OptionalDouble opt) {
+        if (opt.isPresent()) {
+            set(index, opt.getAsDouble());
+        } else {
+            clear(index);
+        }
+    }
+
+    /**
+     * make element at index absent
+     */
+    public void clear(int index) {
+        checkIndex(index);
+        values[index] = 0;
+        present[index >>> 6] &= ~(1L << index);
+    }
+
+
+    // bulk
+
+    /**
+     * map present values, keeping absent ones absent
+     */
+    public OptionalDoubleArray map(DoubleUnaryOperator mapper) {
+        requireNonNull(mapper);
+        double[] mapped = new double[values.length];
+        for (int w = 0; w < present.length; w++) {
+            for (long bits = present[w]; bits != 0; bits &= bits - 1) {
+                int i = (w << 6) + Long.numberOfTrailingZeros(bits);
+                mapped[i] = mapper.applyAsDouble(values[i]);
+            }
+        }
+        return new OptionalDoubleArray(mapped, present.clone());
+    }
+
+    /**
+     * fold each element to double, calling other for each absent element
+     */
+    public double[] fold(DoubleUnaryOperator mapper, DoubleSupplier other) {
+        requireNonNull(mapper);
+        requireNonNull(other);
+        double[] folded = new double[values.length];
+        for (int i = 0; i < values.length; i++) {
+            if ((present[i >>> 6] & (1L << i)) != 0) {
+                folded[i] = mapper.applyAsDouble(values[i]);
+            } else {
+                folded[i] = other.getAsDouble();
+            }
+        }
+        return folded;
+    }
+
+    /**
+     * sum of present values
+     */
+    public double sum() {
+        double sum = 0;
+        for (int w = 0; w < present.length; w++) {
+            for (long bits = present[w]; bits != 0; bits &= bits - 1) {
+                sum += values[(w << 6) + Long.numberOfTrailingZeros(bits)];
+            }
+        }
+        return sum;
+    }
+
+    public int countPresent() {
+        int count = 0;
+        for (long bits : present) {
+            count += Long.bitCount(bits);
+        }
+        return count;
+    }
+
+    public OptionalDouble[] toArray() {
+        OptionalDouble[] array = new OptionalDouble[values.length];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = get(i);
+        }
+        return array;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof OptionalDoubleArray)) {
+            return false;
+        }
+        OptionalDoubleArray other = (OptionalDoubleArray) obj;
+        // absent values are kept zeroed
+        return Arrays.equals(values, other.values) && Arrays.equals(present, other.present);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(values) + Arrays.hashCode(present);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= values.length) {
+            throw new ArrayIndexOutOfBoundsException(index);
+        }
+    }
+
+}
@@ -16,16 +16,19 @@
 
 package com.github.kxbmap.lombok.extension;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.OptionalDouble;
 import java.util.OptionalInt;
 import java.util.OptionalLong;
+import java.util.function.DoubleBinaryOperator;
 import java.util.function.DoubleConsumer;
 import java.util.function.DoubleFunction;
 import java.util.function.DoubleSupplier;
 import java.util.function.DoubleToIntFunction;
 import java.util.function.DoubleToLongFunction;
 import java.util.function.DoubleUnaryOperator;
+import java.util.function.IntFunction;
 import java.util.function.IntSupplier;
 import java.util.function.LongSupplier;
 import java.util.function.Supplier;
@@ -173,4 +176,178 @@ public class OptionalDoubleExtensions {
         }
     }
 
+
+    // lazy
+
+    /**
+     * OptionalDouble evaluated at most once, on first access
+     */
+    public static LazyOptionalDouble lazily(Supplier<OptionalDouble> supplier) {
+        return new LazyOptionalDouble(supplier);
+    }
+
+
+    // firstPresent
+
+    /**
+     * first present result of suppliers, called in order until one is present
+     */
+    @SafeVarargs
+    public static OptionalDouble firstPresent(Supplier<OptionalDouble>... suppliers) {
+        for (Supplier<OptionalDouble> supplier : suppliers) {
+            OptionalDouble opt = requireNonNull(supplier.get());
+            if (opt.isPresent()) {
+                return opt;
+            }
+        }
+        return OptionalDouble.empty();
+    }
+
+    // bulk aggregation over present values
+
+    /**
+     * sum of present values with Kahan compensation
+     */
+    public static double sumPresent(OptionalDouble[] opts) {
+        return kahanSumPresent(opts.length, i -> opts[i]).sum();
+    }
+
+    /**
+     * sum of present values with Kahan compensation
+     */
+    public static double sumPresent(List<OptionalDouble> opts) {
+        return kahanSumPresent(opts.size(), BulkAggregation.indexed(opts)).sum();
+    }
+
+    /**
+     * mean of present values with Kahan compensation; empty if none is present
+     */
+    public static OptionalDouble meanPresent(OptionalDouble[] opts) {
+        return mean(kahanSumPresent(opts.length, i -> opts[i]));
+    }
+
+    /**
+     * mean of present values with Kahan compensation; empty if none is present
+     */
+    public static OptionalDouble meanPresent(List<OptionalDouble> opts) {
+        return mean(kahanSumPresent(opts.size(), BulkAggregation.indexed(opts)));
+    }
+
+    /**
+     * min of present values as by {@link Math#min(double, double)}; empty if none is present
+     */
+    public static OptionalDouble minPresent(OptionalDouble[] opts) {
+        return extremePresent(opts.length, i -> opts[i], Math::min);
+    }
+
+    /**
+     * min of present values as by {@link Math#min(double, double)}; empty if none is present
+     */
+    public static OptionalDouble minPresent(List<OptionalDouble> opts) {
+        return extremePresent(opts.size(), BulkAggregation.indexed(opts), Math::min);
+    }
+
+    /**
+     * max of present values as by {@link Math#max(double, double)}; empty if none is present
+     */
+    public static OptionalDouble maxPresent(OptionalDouble[] opts) {
+        return extremePresent(opts.length, i -> opts[i], Math::max);
+    }
+
+    /**
+     * max of present values as by {@link Math#max(double, double)}; empty if none is present
+     */
+    public static OptionalDouble maxPresent(List<OptionalDouble> opts) {
+        return extremePresent(opts.size(), BulkAggregation.indexed(opts), Math::max);
+    }
+
+    public static long countPresent(OptionalDouble[] opts) {
+        return countPresent(opts.length, i -> opts[i]);
+    }
+
+    public static long countPresent(List<OptionalDouble> opts) {
+        return countPresent(opts.size(), BulkAggregation.indexed(opts));
+    }
+
+    /**
+     * counts of present values in bins of equal width over [min, max); values outside and NaN are not counted
+     */
+    public static long[] histogram(OptionalDouble[] opts, double min, double max, int bins) {
+        return histogram(opts.length, i -> opts[i], min, max, bins);
+    }
+
+    /**
+     * counts of present values in bins of equal width over [min, max); values outside and NaN are not counted
+     */
+    public static long[] histogram(List<OptionalDouble> opts, double min, double max, int bins) {
+        return histogram(opts.size(), BulkAggregation.indexed(opts), min, max, bins);
+    }
+
+    private static BulkAggregation.KahanSum kahanSumPresent(int size, IntFunction<OptionalDouble> at) {
+        return BulkAggregation.aggregate(size, (from, to) -> {
+            BulkAggregation.KahanSum sum = new BulkAggregation.KahanSum();
+            for (int i = from; i < to; i++) {
+                OptionalDouble opt = at.apply(i);
+                if (opt.isPresent()) {
+                    sum.add(opt.getAsDouble());
+                }
+            }
+            return sum;
+        }, BulkAggregation.KahanSum::merge);
+    }
+
+    private static OptionalDouble mean(BulkAggregation.KahanSum sum) {
+        return sum.count > 0 ? OptionalDouble.of(sum.sum() / sum.count) : OptionalDouble.empty();
+    }
+
+    private static OptionalDouble extremePresent(int size, IntFunction<OptionalDouble> at, DoubleBinaryOperator pick) {
+        return BulkAggregation.aggregate(size, (from, to) -> {
+            boolean found = false;
+            double result = 0;
+            for (int i = from; i < to; i++) {
+                OptionalDouble opt = at.apply(i);
+                if (opt.isPresent()) {
+                    result = found ? pick.applyAsDouble(result, opt.getAsDouble()) : opt.getAsDouble();
+                    found = true;
+                }
+            }
+            return found ? OptionalDouble.of(result) : OptionalDouble.empty();
+        }, (l, r) -> !r.isPresent() ? l : !l.isPresent() ? r
+            : OptionalDouble.of(pick.applyAsDouble(l.getAsDouble(), r.getAsDouble())));
+    }
+
+    private static long countPresent(int size, IntFunction<OptionalDouble> at) {
+        return BulkAggregation.aggregate(size, (from, to) -> {
+            long count = 0;
+            for (int i = from; i < to; i++) {
+                if (at.apply(i).isPresent()) {
+                    count++;
+                }
+            }
+            return count;
+        }, Long::sum);
+    }
+
+    private static long[] histogram(int size, IntFunction<OptionalDouble> at, double min, double max, int bins) {
+        if (!(min < max) || Double.isInfinite(max - min) || bins < 1) {
+            throw new IllegalArgumentException("min: " + min + ", max: " + max + ", bins: " + bins);
+        }
+        double width = (max - min) / bins;
+        return BulkAggregation.aggregate(size, (from, to) -> {
+            long[] counts = new long[bins];
+            for (int i = from; i < to; i++) {
+                OptionalDouble opt = at.apply(i);
+                if (opt.isPresent() && opt.getAsDouble() >= min && opt.getAsDouble() < max) {
+                    counts[Math.min((int) ((opt.getAsDouble() - min) / width), bins - 1)]++;
+                }
+            }
+            return counts;
+        }, (l, r) -> {
+            for (int b = 0; b < bins; b++) {
+                l[b] += r[b];
+            }
+            return l;
+        });
+    }
+
 }
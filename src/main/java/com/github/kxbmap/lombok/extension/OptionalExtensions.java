@@ -16,10 +16,17 @@
 
 package com.github.kxbmap.lombok.extension;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 import java.util.OptionalDouble;
 import java.util.OptionalInt;
 import java.util.OptionalLong;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.function.DoubleSupplier;
 import java.util.function.Function;
@@ -157,4 +164,84 @@ public class OptionalExtensions {
         }
     }
 
+
+    // lazy
+
+    /**
+     * Optional&lt;T&gt; evaluated at most once, on first access
+     */
+    public static <T> LazyOptional<T> lazily(Supplier<? extends Optional<? extends T>> supplier) {
+        return new LazyOptional<>(supplier);
+    }
+
+
+    // firstPresent
+
+    /**
+     * first present result of suppliers, called in order until one is present
+     */
+    @SafeVarargs
+    public static <T> Optional<T> firstPresent(Supplier<Optional<T>>... suppliers) {
+        for (Supplier<Optional<T>> supplier : suppliers) {
+            Optional<T> opt = requireNonNull(supplier.get());
+            if (opt.isPresent()) {
+                return opt;
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Call suppliers concurrently on executor and complete with the first present result in supplier order,
+     * as soon as it and every result before it are known.
+     * <p>
+     * Suppliers not yet started are cancelled once the result is known. A supplier that throws fails the
+     * result only if no earlier supplier is present.
+     */
+    @SafeVarargs
+    public static <T> CompletableFuture<Optional<T>> firstPresentAsync(Executor executor,
+                                                                      Supplier<Optional<T>>... suppliers) {
+        requireNonNull(executor);
+        CompletableFuture<Optional<T>> result = new CompletableFuture<>();
+        List<CompletableFuture<Optional<T>>> futures = new ArrayList<>(suppliers.length);
+        for (Supplier<Optional<T>> supplier : suppliers) {
+            requireNonNull(supplier);
+            futures.add(CompletableFuture.supplyAsync(() -> requireNonNull(supplier.get()), executor));
+        }
+        // index of the first result not yet known to be absent
+        AtomicInteger cursor = new AtomicInteger();
+        Runnable advance = () -> {
+            for (;;) {
+                int i = cursor.get();
+                if (i == futures.size()) {
+                    result.complete(Optional.empty());
+                    return;
+                }
+                CompletableFuture<Optional<T>> future = futures.get(i);
+                if (!future.isDone()) {
+                    // its own completion advances again
+                    return;
+                }
+                Optional<T> opt;
+                try {
+                    opt = future.join();
+                } catch (CompletionException | CancellationException ex) {
+                    result.completeExceptionally(ex instanceof CompletionException ? ex.getCause() : ex);
+                    return;
+                }
+                if (opt.isPresent()) {
+                    result.complete(opt);
+                    return;
+                }
+                cursor.compareAndSet(i, i + 1);
+            }
+        };
+        result.whenComplete((opt, e) -> futures.forEach(f -> f.cancel(false)));
+        if (futures.isEmpty()) {
+            advance.run();
+        }
+        futures.forEach(f -> f.whenComplete((opt, e) -> advance.run()));
+        return result;
+    }
+
 }
@@ -0,0 +1,211 @@
+/*
+ * Copyright 2014 Tsukasa Kitachi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.kxbmap.lombok.extension;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.OptionalInt;
+import java.util.function.IntSupplier;
+import java.util.function.IntUnaryOperator;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Fixed-length array of OptionalInt packed into an int[] of values and a long[] presence bitmap,
+ * about 4.1 bytes per element instead of a reference and an object each.
+ * <p>
+ * Not thread-safe.
+ */
+public final class OptionalIntArray {
+
+    private static final int CACHE_LOW = -128;
+    private static final int CACHE_HIGH = 1023;
+    private static final OptionalInt[] CACHE = new OptionalInt[CACHE_HIGH - CACHE_LOW + 1];
+
+    static {
+        for (int i = 0; i < CACHE.length; i++) {
+            CACHE[i] = OptionalInt.of(i + CACHE_LOW);
+        }
+    }
+
+    private final int[] values;
+    private final long[] present;
+
+    /**
+     * array of absent values
+     */
+    public OptionalIntArray(int length) {
+        this(new int[length], new long[(length + 63) >>> 6]);
+    }
+
+    private OptionalIntArray(int[] values, long[] present) {
+        this.values = values;
+        this.present = present;
+    }
+
+    public static OptionalIntArray of(OptionalInt... opts) {
+        OptionalIntArray array = new OptionalIntArray(opts.length);
+        for (int i = 0; i < opts.length; i++) {
+            array.set(i, opts[i]);
+        }
+        return array;
+    }
+
+    public int length() {
+        return values.length;
+    }
+
+    public boolean isPresent(int index) {
+        checkIndex(index);
+        return (present[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * @return element at index; OptionalInt of small values are shared
+     */
+    public OptionalInt get(int index) {
+        if (!isPresent(index)) {
+            return OptionalInt.empty();
+        }
+        int value = values[index];
+        return value >= CACHE_LOW && value <= CACHE_HIGH ? CACHE[value - CACHE_LOW] : OptionalInt.of(value);
+    }
+
+    /**
+     * @throws NoSuchElementException if absent
+     */
+    public int getAsInt(int index) {
+        if (!isPresent(index)) {
+            throw new NoSuchElementException("No value present");
+        }
+        return values[index];
+    }
+
+    public void set(int index, int value) {
+        checkIndex(index);
+        values[index] = value;
+        present[index >>> 6] |= 1L << index;
+    }
+
+    public void set(int index, OptionalInt opt) {
+        if (opt.isPresent()) {
+            set(index, opt.getAsInt());
+        } else {
+            clear(index);
+        }
+    }
+
+    /**
+     * make element at index absent
+     */
+    public void clear(int index) {
+        checkIndex(index);
+        values[index] = 0;
+        present[index >>> 6] &= ~(1L << index);
+    }
+
+
+    // bulk
+
+    /**
+     * map present values, keeping absent ones absent
+     */
+    public OptionalIntArray map(IntUnaryOperator mapper) {
+        requireNonNull(mapper);
+        int[] mapped = new int[values.length];
+        for (int w = 0; w < present.length; w++) {
+            for (long bits = present[w]; bits != 0; bits &= bits - 1) {
+                int i = (w << 6) + Long.numberOfTrailingZeros(bits);
+                mapped[i] = mapper.applyAsInt(values[i]);
+            }
+        }
+        return new OptionalIntArray(mapped, present.clone());
+    }
+
+    /**
+     * fold each element to int, calling other for each absent element
+     */
+    public int[] fold(IntUnaryOperator mapper, IntSupplier other) {
+        requireNonNull(mapper);
+        requireNonNull(other);
+        int[] folded = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            if ((present[i >>> 6] & (1L << i)) != 0) {
+                folded[i] = mapper.applyAsInt(values[i]);
+            } else {
+                folded[i] = other.getAsInt();
+            }
+        }
+        return folded;
+    }
+
+    /**
+     * sum of present values
+     */
+    public long sum() {
+        long sum = 0;
+        for (int w = 0; w < present.length; w++) {
+            for (long bits = present[w]; bits != 0; bits &= bits - 1) {
+                sum += values[(w << 6) + Long.numberOfTrailingZeros(bits)];
+            }
+        }
+        return sum;
+    }
+
+    public int countPresent() {
+        int count = 0;
+        for (long bits : present) {
+            count += Long.bitCount(bits);
+        }
+        return count;
+    }
+
+    public OptionalInt[] toArray() {
+        OptionalInt[] array = new OptionalInt[values.length];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = get(i);
+        }
+        return array;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof OptionalIntArray)) {
+            return false;
+        }
+        OptionalIntArray other = (OptionalIntArray) obj;
+        // absent values are kept zeroed
+        return Arrays.equals(values, other.values) && Arrays.equals(present, other.present);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(values) + Arrays.hashCode(present);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= values.length) {
+            throw new ArrayIndexOutOfBoundsException(index);
+        }
+    }
+
+}
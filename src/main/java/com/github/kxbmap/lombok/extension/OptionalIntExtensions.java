@@ -16,11 +16,13 @@
 
 package com.github.kxbmap.lombok.extension;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.OptionalDouble;
 import java.util.OptionalInt;
 import java.util.OptionalLong;
 import java.util.function.DoubleSupplier;
+import java.util.function.IntBinaryOperator;
 import java.util.function.IntConsumer;
 import java.util.function.IntFunction;
 import java.util.function.IntSupplier;
@@ -173,4 +175,192 @@ public class OptionalIntExtensions {
         }
     }
 
+
+    // lazy
+
+    /**
+     * OptionalInt evaluated at most once, on first access
+     */
+    public static LazyOptionalInt lazily(Supplier<OptionalInt> supplier) {
+        return new LazyOptionalInt(supplier);
+    }
+
+
+    // firstPresent
+
+    /**
+     * first present result of suppliers, called in order until one is present
+     */
+    @SafeVarargs
+    public static OptionalInt firstPresent(Supplier<OptionalInt>... suppliers) {
+        for (Supplier<OptionalInt> supplier : suppliers) {
+            OptionalInt opt = requireNonNull(supplier.get());
+            if (opt.isPresent()) {
+                return opt;
+            }
+        }
+        return OptionalInt.empty();
+    }
+
+    // bulk aggregation over present values
+
+    /**
+     * sum of present values
+     */
+    public static long sumPresent(OptionalInt[] opts) {
+        return sumPresent(opts.length, i -> opts[i]);
+    }
+
+    /**
+     * sum of present values
+     */
+    public static long sumPresent(List<OptionalInt> opts) {
+        return sumPresent(opts.size(), BulkAggregation.indexed(opts));
+    }
+
+    /**
+     * mean of present values; empty if none is present
+     */
+    public static OptionalDouble meanPresent(OptionalInt[] opts) {
+        return meanPresent(opts.length, i -> opts[i]);
+    }
+
+    /**
+     * mean of present values; empty if none is present
+     */
+    public static OptionalDouble meanPresent(List<OptionalInt> opts) {
+        return meanPresent(opts.size(), BulkAggregation.indexed(opts));
+    }
+
+    /**
+     * min of present values; empty if none is present
+     */
+    public static OptionalInt minPresent(OptionalInt[] opts) {
+        return extremePresent(opts.length, i -> opts[i], Math::min);
+    }
+
+    /**
+     * min of present values; empty if none is present
+     */
+    public static OptionalInt minPresent(List<OptionalInt> opts) {
+        return extremePresent(opts.size(), BulkAggregation.indexed(opts), Math::min);
+    }
+
+    /**
+     * max of present values; empty if none is present
+     */
+    public static OptionalInt maxPresent(OptionalInt[] opts) {
+        return extremePresent(opts.length, i -> opts[i], Math::max);
+    }
+
+    /**
+     * max of present values; empty if none is present
+     */
+    public static OptionalInt maxPresent(List<OptionalInt> opts) {
+        return extremePresent(opts.size(), BulkAggregation.indexed(opts), Math::max);
+    }
+
+    public static long countPresent(OptionalInt[] opts) {
+        return countPresent(opts.length, i -> opts[i]);
+    }
+
+    public static long countPresent(List<OptionalInt> opts) {
+        return countPresent(opts.size(), BulkAggregation.indexed(opts));
+    }
+
+    /**
+     * counts of present values in bins over [min, max) of width (max - min) / bins, the last one taking
+     * the remainder; values outside are not counted
+     */
+    public static long[] histogram(OptionalInt[] opts, int min, int max, int bins) {
+        return histogram(opts.length, i -> opts[i], min, max, bins);
+    }
+
+    /**
+     * counts of present values in bins over [min, max) of width (max - min) / bins, the last one taking
+     * the remainder; values outside are not counted
+     */
+    public static long[] histogram(List<OptionalInt> opts, int min, int max, int bins) {
+        return histogram(opts.size(), BulkAggregation.indexed(opts), min, max, bins);
+    }
+
+    private static long sumPresent(int size, IntFunction<OptionalInt> at) {
+        return BulkAggregation.aggregate(size, (from, to) -> {
+            long sum = 0;
+            for (int i = from; i < to; i++) {
+                OptionalInt opt = at.apply(i);
+                if (opt.isPresent()) {
+                    sum += opt.getAsInt();
+                }
+            }
+            return sum;
+        }, Long::sum);
+    }
+
+    private static OptionalDouble meanPresent(int size, IntFunction<OptionalInt> at) {
+        // {sum, count}; an int sum cannot overflow a long within an array
+        long[] acc = BulkAggregation.aggregate(size, (from, to) -> {
+            long sum = 0;
+            long count = 0;
+            for (int i = from; i < to; i++) {
+                OptionalInt opt = at.apply(i);
+                if (opt.isPresent()) {
+                    sum += opt.getAsInt();
+                    count++;
+                }
+            }
+            return new long[]{sum, count};
+        }, (l, r) -> new long[]{l[0] + r[0], l[1] + r[1]});
+        return acc[1] > 0 ? OptionalDouble.of((double) acc[0] / acc[1]) : OptionalDouble.empty();
+    }
+
+    private static OptionalInt extremePresent(int size, IntFunction<OptionalInt> at, IntBinaryOperator pick) {
+        return BulkAggregation.aggregate(size, (from, to) -> {
+            boolean found = false;
+            int result = 0;
+            for (int i = from; i < to; i++) {
+                OptionalInt opt = at.apply(i);
+                if (opt.isPresent()) {
+                    result = found ? pick.applyAsInt(result, opt.getAsInt()) : opt.getAsInt();
+                    found = true;
+                }
+            }
+            return found ? OptionalInt.of(result) : OptionalInt.empty();
+        }, (l, r) -> !r.isPresent() ? l : !l.isPresent() ? r
+            : OptionalInt.of(pick.applyAsInt(l.getAsInt(), r.getAsInt())));
+    }
+
+    private static long countPresent(int size, IntFunction<OptionalInt> at) {
+        return BulkAggregation.aggregate(size, (from, to) -> {
+            long count = 0;
+            for (int i = from; i < to; i++) {
+                if (at.apply(i).isPresent()) {
+                    count++;
+                }
+            }
+            return count;
+        }, Long::sum);
+    }
+
+    private static long[] histogram(int size, IntFunction<OptionalInt> at, int min, int max, int bins) {
+        if (min >= max || bins < 1) {
+            throw new IllegalArgumentException("min: " + min + ", max: " + max + ", bins: " + bins);
+        }
+        return BulkAggregation.aggregate(size, (from, to) -> {
+            long[] counts = new long[bins];
+            for (int i = from; i < to; i++) {
+                OptionalInt opt = at.apply(i);
+                if (opt.isPresent() && opt.getAsInt() >= min && opt.getAsInt() < max) {
+                    counts[BulkAggregation.bin((long) opt.getAsInt() - min, (long) max - min, bins)]++;
+                }
+            }
+            return counts;
+        }, (l, r) -> {
+            for (int b = 0; b < bins; b++) {
+                l[b] += r[b];
+            }
+            return l;
+        });
+    }
+
 }
@@ -16,12 +16,15 @@
 
 package com.github.kxbmap.lombok.extension;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.OptionalDouble;
 import java.util.OptionalInt;
 import java.util.OptionalLong;
 import java.util.function.DoubleSupplier;
+import java.util.function.IntFunction;
 import java.util.function.IntSupplier;
+import java.util.function.LongBinaryOperator;
 import java.util.function.LongConsumer;
 import java.util.function.LongFunction;
 import java.util.function.LongSupplier;
@@ -173,4 +176,189 @@ public class OptionalLongExtensions {
         }
     }
 
+
+    // lazy
+
+    /**
+     * OptionalLong evaluated at most once, on first access
+     */
+    public static LazyOptionalLong lazily(Supplier<OptionalLong> supplier) {
+        return new LazyOptionalLong(supplier);
+    }
+
+
+    // firstPresent
+
+    /**
+     * first present result of suppliers, called in order until one is present
+     */
+    @SafeVarargs
+    public static OptionalLong firstPresent(Supplier<OptionalLong>... suppliers) {
+        for (Supplier<OptionalLong> supplier : suppliers) {
+            OptionalLong opt = requireNonNull(supplier.get());
+            if (opt.isPresent()) {
+                return opt;
+            }
+        }
+        return OptionalLong.empty();
+    }
+
+    // bulk aggregation over present values
+
+    /**
+     * sum of present values; overflows as by {@link java.util.stream.LongStream#sum()}
+     */
+    public static long sumPresent(OptionalLong[] opts) {
+        return sumPresent(opts.length, i -> opts[i]);
+    }
+
+    /**
+     * sum of present values; overflows as by {@link java.util.stream.LongStream#sum()}
+     */
+    public static long sumPresent(List<OptionalLong> opts) {
+        return sumPresent(opts.size(), BulkAggregation.indexed(opts));
+    }
+
+    /**
+     * mean of present values, summed as doubles with Kahan compensation; empty if none is present
+     */
+    public static OptionalDouble meanPresent(OptionalLong[] opts) {
+        return meanPresent(opts.length, i -> opts[i]);
+    }
+
+    /**
+     * mean of present values, summed as doubles with Kahan compensation; empty if none is present
+     */
+    public static OptionalDouble meanPresent(List<OptionalLong> opts) {
+        return meanPresent(opts.size(), BulkAggregation.indexed(opts));
+    }
+
+    /**
+     * min of present values; empty if none is present
+     */
+    public static OptionalLong minPresent(OptionalLong[] opts) {
+        return extremePresent(opts.length, i -> opts[i], Math::min);
+    }
+
+    /**
+     * min of present values; empty if none is present
+     */
+    public static OptionalLong minPresent(List<OptionalLong> opts) {
+        return extremePresent(opts.size(), BulkAggregation.indexed(opts), Math::min);
+    }
+
+    /**
+     * max of present values; empty if none is present
+     */
+    public static OptionalLong maxPresent(OptionalLong[] opts) {
+        return extremePresent(opts.length, i -> opts[i], Math::max);
+    }
+
+    /**
+     * max of present values; empty if none is present
+     */
+    public static OptionalLong maxPresent(List<OptionalLong> opts) {
+        return extremePresent(opts.size(), BulkAggregation.indexed(opts), Math::max);
+    }
+
+    public static long countPresent(OptionalLong[] opts) {
+        return countPresent(opts.length, i -> opts[i]);
+    }
+
+    public static long countPresent(List<OptionalLong> opts) {
+        return countPresent(opts.size(), BulkAggregation.indexed(opts));
+    }
+
+    /**
+     * counts of present values in bins over [min, max) of width (max - min) / bins, the last one taking
+     * the remainder; values outside are not counted
+     */
+    public static long[] histogram(OptionalLong[] opts, long min, long max, int bins) {
+        return histogram(opts.length, i -> opts[i], min, max, bins);
+    }
+
+    /**
+     * counts of present values in bins over [min, max) of width (max - min) / bins, the last one taking
+     * the remainder; values outside are not counted
+     */
+    public static long[] histogram(List<OptionalLong> opts, long min, long max, int bins) {
+        return histogram(opts.size(), BulkAggregation.indexed(opts), min, max, bins);
+    }
+
+    private static long sumPresent(int size, IntFunction<OptionalLong> at) {
+        return BulkAggregation.aggregate(size, (from, to) -> {
+            long sum = 0;
+            for (int i = from; i < to; i++) {
+                OptionalLong opt = at.apply(i);
+                if (opt.isPresent()) {
+                    sum += opt.getAsLong();
+                }
+            }
+            return sum;
+        }, Long::sum);
+    }
+
+    private static OptionalDouble meanPresent(int size, IntFunction<OptionalLong> at) {
+        BulkAggregation.KahanSum acc = BulkAggregation.aggregate(size, (from, to) -> {
+            BulkAggregation.KahanSum sum = new BulkAggregation.KahanSum();
+            for (int i = from; i < to; i++) {
+                OptionalLong opt = at.apply(i);
+                if (opt.isPresent()) {
+                    sum.add(opt.getAsLong());
+                }
+            }
+            return sum;
+        }, BulkAggregation.KahanSum::merge);
+        return acc.count > 0 ? OptionalDouble.of(acc.sum() / acc.count) : OptionalDouble.empty();
+    }
+
+    private static OptionalLong extremePresent(int size, IntFunction<OptionalLong> at, LongBinaryOperator pick) {
+        return BulkAggregation.aggregate(size, (from, to) -> {
+            boolean found = false;
+            long result = 0;
+            for (int i = from; i < to; i++) {
+                OptionalLong opt = at.apply(i);
+                if (opt.isPresent()) {
+                    result = found ? pick.applyAsLong(result, opt.getAsLong()) : opt.getAsLong();
+                    found = true;
+                }
+            }
+            return found ? OptionalLong.of(result) : OptionalLong.empty();
+        }, (l, r) -> !r.isPresent() ? l : !l.isPresent() ? r
+            : OptionalLong.of(pick.applyAsLong(l.getAsLong(), r.getAsLong())));
+    }
+
+    private static long countPresent(int size, IntFunction<OptionalLong> at) {
+        return BulkAggregation.aggregate(size, (from, to) -> {
+            long count = 0;
+            for (int i = from; i < to; i++) {
+                if (at.apply(i).isPresent()) {
+                    count++;
+                }
+            }
+            return count;
+        }, Long::sum);
+    }
+
+    private static long[] histogram(int size, IntFunction<OptionalLong> at, long min, long max, int bins) {
+        if (min >= max || bins < 1) {
+            throw new IllegalArgumentException("min: " + min + ", max: " + max + ", bins: " + bins);
+        }
+        return BulkAggregation.aggregate(size, (from, to) -> {
+            long[] counts = new long[bins];
+            for (int i = from; i < to; i++) {
+                OptionalLong opt = at.apply(i);
+                if (opt.isPresent() && opt.getAsLong() >= min && opt.getAsLong() < max) {
+                    counts[BulkAggregation.bin(opt.getAsLong() - min, max - min, bins)]++;
+                }
+            }
+            return counts;
+        }, (l, r) -> {
+            for (int b = 0; b < bins; b++) {
+                l[b] += r[b];
+            }
+            return l;
+        });
+    }
+
 }
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2014 Tsukasa Kitachi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.kxbmap.lombok.extension;
+
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.OptionalDouble;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
+import java.util.function.DoubleSupplier;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+import java.util.function.IntSupplier;
+import java.util.function.IntToDoubleFunction;
+import java.util.function.IntToLongFunction;
+import java.util.function.IntUnaryOperator;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Optional int packed into a long: bit 32 is the presence bit and the low 32 bits are the value.
+ * <p>
+ * Packed values are plain longs, so they can be stored in fields and arrays without allocating.
+ * {@link #EMPTY} is 0, so a zeroed long[] is all absent.
+ */
+public class PackedOptionalInt {
+
+    public static final long EMPTY = 0L;
+
+    private static final long PRESENT = 1L << 32;
+    private static final long VALUE_MASK = 0xFFFF_FFFFL;
+
+    public static long of(int value) {
+        return PRESENT | (value & VALUE_MASK);
+    }
+
+    public static long of(OptionalInt opt) {
+        return opt.isPresent() ? of(opt.getAsInt()) : EMPTY;
+    }
+
+    public static OptionalInt toOptional(long packed) {
+        return isPresent(packed) ? OptionalInt.of(value(packed)) : OptionalInt.empty();
+    }
+
+    public static boolean isPresent(long packed) {
+        return (packed & PRESENT) != 0;
+    }
+
+    public static boolean isAbsent(long packed) {
+        return (packed & PRESENT) == 0;
+    }
+
+    /**
+     * @throws NoSuchElementException if absent
+     */
+    public static int getAsInt(long packed) {
+        if (isAbsent(packed)) {
+            throw new NoSuchElementException("No value present");
+        }
+        return value(packed);
+    }
+
+    public static int orElse(long packed, int other) {
+        return isPresent(packed) ? value(packed) : other;
+    }
+
+    public static long filter(long packed, IntPredicate predicate) {
+        requireNonNull(predicate);
+        return isPresent(packed) && predicate.test(value(packed)) ? packed : EMPTY;
+    }
+
+
+    // map
+
+    /**
+     * map packed to packed
+     */
+    public static long map(long packed, IntUnaryOperator mapper) {
+        requireNonNull(mapper);
+        return isPresent(packed) ? of(mapper.applyAsInt(value(packed))) : EMPTY;
+    }
+
+    /**
+     * map packed to OptionalLong
+     */
+    public static OptionalLong mapToLong(long packed, IntToLongFunction mapper) {
+        requireNonNull(mapper);
+        return isPresent(packed) ? OptionalLong.of(mapper.applyAsLong(value(packed))) : OptionalLong.empty();
+    }
+
+    /**
+     * map packed to OptionalDouble
+     */
+    public static OptionalDouble mapToDouble(long packed, IntToDoubleFunction mapper) {
+        requireNonNull(mapper);
+        return isPresent(packed) ? OptionalDouble.of(mapper.applyAsDouble(value(packed))) : OptionalDouble.empty();
+    }
+
+    /**
+     * map packed to Optional&lt;T&gt;
+     */
+    public static <T> Optional<T> mapToObj(long packed, IntFunction<? extends T> mapper) {
+        requireNonNull(mapper);
+        return isPresent(packed) ? Optional.ofNullable(mapper.apply(value(packed))) : Optional.empty();
+    }
+
+
+    // flatMap
+
+    /**
+     * flatMap packed to packed
+     */
+    public static long flatMap(long packed, IntToLongFunction mapper) {
+        requireNonNull(mapper);
+        return isPresent(packed) ? mapper.applyAsLong(value(packed)) : EMPTY;
+    }
+
+    /**
+     * flatMap packed to OptionalLong
+     */
+    public static OptionalLong flatMapToLong(long packed, IntFunction<OptionalLong> mapper) {
+        requireNonNull(mapper);
+        return isPresent(packed) ? requireNonNull(mapper.apply(value(packed))) : OptionalLong.empty();
+    }
+
+    /**
+     * flatMap packed to OptionalDouble
+     */
+    public static OptionalDouble flatMapToDouble(long packed, IntFunction<OptionalDouble> mapper) {
+        requireNonNull(mapper);
+        return isPresent(packed) ? requireNonNull(mapper.apply(value(packed))) : OptionalDouble.empty();
+    }
+
+    /**
+     * flatMap packed to Optional&lt;T&gt;
+     */
+    public static <T> Optional<T> flatMapToObj(long packed, IntFunction<Optional<T>> mapper) {
+        requireNonNull(mapper);
+        return isPresent(packed) ? requireNonNull(mapper.apply(value(packed))) : Optional.empty();
+    }
+
+
+    // fold
+
+    /**
+     * fold packed to int
+     */
+    public static int fold(long packed, IntUnaryOperator mapper, IntSupplier other) {
+        requireNonNull(mapper);
+        requireNonNull(other);
+        return isPresent(packed) ? mapper.applyAsInt(value(packed)) : other.getAsInt();
+    }
+
+    /**
+     * fold packed to long
+     */
+    public static long foldToLong(long packed, IntToLongFunction mapper, LongSupplier other) {
+        requireNonNull(mapper);
+        requireNonNull(other);
+        return isPresent(packed) ? mapper.applyAsLong(value(packed)) : other.getAsLong();
+    }
+
+    /**
+     * fold packed to double
+     */
+    public static double foldToDouble(long packed, IntToDoubleFunction mapper, DoubleSupplier other) {
+        requireNonNull(mapper);
+        requireNonNull(other);
+        return isPresent(packed) ? mapper.applyAsDouble(value(packed)) : other.getAsDouble();
+    }
+
+    /**
+     * fold packed to T
+     */
+    public static <T> T foldToObj(long packed, IntFunction<? extends T> mapper, Supplier<? extends T> other) {
+        requireNonNull(mapper);
+        requireNonNull(other);
+        return isPresent(packed) ? mapper.apply(value(packed)) : other.get();
+    }
+
+
+    public static void ifPresent(long packed, IntConsumer consumer) {
+        if (isPresent(packed)) {
+            consumer.accept(value(packed));
+        }
+    }
+
+    public static void ifAbsent(long packed, Runnable runnable) {
+        if (isAbsent(packed)) {
+            runnable.run();
+        }
+    }
+
+    public static void consume(long packed, IntConsumer consumer, Runnable runnable) {
+        if (isPresent(packed)) {
+            consumer.accept(value(packed));
+        } else {
+            runnable.run();
+        }
+    }
+
+    public static String toString(long packed) {
+        return isPresent(packed) ? "PackedOptionalInt[" + value(packed) + "]" : "PackedOptionalInt.empty";
+    }
+
+    private static int value(long packed) {
+        return (int) packed;
+    }
+
+}
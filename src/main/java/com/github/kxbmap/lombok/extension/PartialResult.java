@@ -0,0 +1,113 @@
+/*
+ * Copyright 2014 Tsukasa Kitachi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.kxbmap.lombok.extension;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Outcome of a gather that stopped at its deadline: the values and failures of the inputs completed by then,
+ * and the inputs still pending.
+ */
+public final class PartialResult<T> {
+
+    private static final Object NULL = new Object();
+
+    private final List<T> values;
+    private final List<Throwable> failures;
+    private final List<CompletableFuture<T>> pending;
+
+    /**
+     * @param outcomes encoded by {@link #success(Object)} or {@link #failure(Throwable)}; null if pending
+     */
+    @SuppressWarnings("unchecked")
+    PartialResult(List<CompletableFuture<T>> inputs, AtomicReferenceArray<Object> outcomes) {
+        List<T> values = new ArrayList<>();
+        List<Throwable> failures = new ArrayList<>();
+        List<CompletableFuture<T>> pending = new ArrayList<>();
+        for (int i = 0; i < inputs.size(); i++) {
+            Object outcome = outcomes.get(i);
+            if (outcome == null) {
+                pending.add(inputs.get(i));
+            } else if (outcome instanceof Failure) {
+                failures.add(((Failure) outcome).cause);
+            } else {
+                values.add(outcome == NULL ? null : (T) outcome);
+            }
+        }
+        this.values = Collections.unmodifiableList(values);
+        this.failures = Collections.unmodifiableList(failures);
+        this.pending = Collections.unmodifiableList(pending);
+    }
+
+    static Object success(Object value) {
+        return value == null ? NULL : value;
+    }
+
+    static Object failure(Throwable ex) {
+        return new Failure(ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex);
+    }
+
+    /**
+     * values of the inputs completed normally, in input order
+     */
+    public List<T> values() {
+        return values;
+    }
+
+    /**
+     * causes of the inputs completed exceptionally, in input order
+     */
+    public List<Throwable> failures() {
+        return failures;
+    }
+
+    /**
+     * inputs not completed by the deadline, in input order
+     */
+    public List<CompletableFuture<T>> pending() {
+        return pending;
+    }
+
+    /**
+     * true if every input completed before the deadline
+     */
+    public boolean isComplete() {
+        return pending.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "PartialResult(values=" + values.size()
+            + ", failures=" + failures.size()
+            + ", pending=" + pending.size() + ")";
+    }
+
+
+    private static final class Failure {
+        final Throwable cause;
+
+        Failure(Throwable cause) {
+            this.cause = cause;
+        }
+    }
+
+}
@@ -0,0 +1,398 @@
+/*
+ * Copyright 2014 Tsukasa Kitachi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.kxbmap.lombok.extension;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Lightweight single-assignment future.
+ * <p>
+ * All state lives in one volatile field. A non-null value is stored as is; only null values and failures are
+ * wrapped. A map or flatMap stage is itself the listener of its source, so a stage costs one object, and a
+ * list of listeners is only built when a second one is added. Dependent stages are completed by a loop rather
+ * than by recursion, so completing the root of a long chain does not overflow the stack.
+ */
+public class Promise<T> {
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<Promise, Object> STATE =
+        AtomicReferenceFieldUpdater.newUpdater(Promise.class, Object.class, "state");
+
+    private static final AltResult NIL = new AltResult(null, null);
+
+    /**
+     * null (pending), a {@link Completion}, {@link Listeners}, an {@link AltResult} or the value itself
+     */
+    private volatile Object state;
+
+    // package-private so that only the stages below can extend it
+    Promise() {
+    }
+
+    private Promise(Object result) {
+        this.state = result;
+    }
+
+    /**
+     * Promise to be completed by {@link #complete(Object)} or {@link #completeExceptionally(Throwable)}
+     */
+    public static <T> Promise<T> pending() {
+        return new Promise<>();
+    }
+
+    public static <T> Promise<T> completed(T value) {
+        return new Promise<>(encode(value));
+    }
+
+    public static <T> Promise<T> failed(Throwable ex) {
+        return new Promise<>(new AltResult(null, requireNonNull(ex)));
+    }
+
+    /**
+     * Promise completed with the result of the future
+     */
+    public static <T> Promise<T> fromFuture(CompletableFuture<T> future) {
+        Promise<T> promise = new Promise<>();
+        future.whenComplete(promise::completeWith);
+        return promise;
+    }
+
+
+    public boolean complete(T value) {
+        return tryComplete(encode(value));
+    }
+
+    public boolean completeExceptionally(Throwable ex) {
+        return tryComplete(new AltResult(null, requireNonNull(ex)));
+    }
+
+    public boolean isDone() {
+        return isResult(state);
+    }
+
+    public boolean isCompletedExceptionally() {
+        Object s = state;
+        return s instanceof AltResult && ((AltResult) s).failure != null;
+    }
+
+
+    /**
+     * register action invoked with the value or failure of this promise
+     */
+    public Promise<T> onComplete(BiConsumer<? super T, ? super Throwable> action) {
+        addCompletion(new Action(requireNonNull(action)));
+        return this;
+    }
+
+    public Promise<T> whenComplete(Consumer<? super T> onSuccess, Consumer<? super Throwable> onFailure) {
+        requireNonNull(onSuccess);
+        requireNonNull(onFailure);
+        return onComplete((t, e) -> {
+            if (e == null) {
+                onSuccess.accept(t);
+            } else {
+                onFailure.accept(e);
+            }
+        });
+    }
+
+    public <U> Promise<U> map(Function<? super T, ? extends U> mapper) {
+        Mapped<T, U> promise = new Mapped<>(requireNonNull(mapper));
+        addCompletion(promise);
+        return promise;
+    }
+
+    public <U> Promise<U> flatMap(Function<? super T, Promise<U>> mapper) {
+        FlatMapped<T, U> promise = new FlatMapped<>(requireNonNull(mapper));
+        addCompletion(promise);
+        return promise;
+    }
+
+    /**
+     * CompletableFuture completed with the result of this promise
+     */
+    public CompletableFuture<T> toCompletableFuture() {
+        Object s = state;
+        if (isResult(s)) {
+            Throwable failure = failureOf(s);
+            return failure == null
+                ? CompletableFuture.completedFuture(Promise.<T>valueOf(s))
+                : FutureExtensions.exceptionallyFuture(failure);
+        }
+        CompletableFuture<T> future = new CompletableFuture<>();
+        onComplete((t, e) -> {
+            if (e == null) {
+                future.complete(t);
+            } else {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+
+    private void completeWith(T value, Throwable ex) {
+        if (ex == null) {
+            complete(value);
+        } else {
+            completeExceptionally(ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex);
+        }
+    }
+
+    private void addCompletion(Completion completion) {
+        for (;;) {
+            Object s = state;
+            if (isResult(s)) {
+                Object listeners = completion.fire(s);
+                if (listeners != null) {
+                    postComplete(listeners, ((Promise<?>) completion).state);
+                }
+                return;
+            }
+            Object next = s == null ? completion : new Listeners(completion, s);
+            if (STATE.compareAndSet(this, s, next)) {
+                return;
+            }
+        }
+    }
+
+    private boolean tryComplete(Object result) {
+        for (;;) {
+            Object s = state;
+            if (isResult(s)) {
+                return false;
+            }
+            if (STATE.compareAndSet(this, s, result)) {
+                if (s != null) {
+                    postComplete(s, result);
+                }
+                return true;
+            }
+        }
+    }
+
+    /**
+     * complete without notifying listeners
+     *
+     * @return the listeners to notify, or null
+     */
+    private Object completeNested(Object result) {
+        for (;;) {
+            Object s = state;
+            if (isResult(s)) {
+                return null;
+            }
+            if (STATE.compareAndSet(this, s, result)) {
+                return s;
+            }
+        }
+    }
+
+    /**
+     * Notify listeners, and then the listeners of the stages they complete, from a loop.
+     * A chain of single dependents needs no work stack.
+     */
+    private static void postComplete(Object listeners, Object result) {
+        ArrayDeque<Object> stack = null;
+        Object ls = listeners;
+        Object r = result;
+        for (;;) {
+            Object nextListeners = null;
+            Object nextResult = null;
+            // listeners are pushed in LIFO order; reverse them to notify in registration order
+            Listeners reversed = null;
+            Object s = ls;
+            while (s instanceof Listeners) {
+                Listeners l = (Listeners) s;
+                reversed = new Listeners(l.completion, reversed);
+                s = l.next;
+            }
+            Completion c = (Completion) s;
+            for (Listeners l = reversed; ; l = (Listeners) l.next) {
+                Object dependents = c.fire(r);
+                if (dependents != null) {
+                    Object dependentResult = ((Promise<?>) c).state;
+                    if (nextListeners == null) {
+                        nextListeners = dependents;
+                        nextResult = dependentResult;
+                    } else {
+                        if (stack == null) {
+                            stack = new ArrayDeque<>();
+                        }
+                        stack.push(dependentResult);
+                        stack.push(dependents);
+                    }
+                }
+                if (l == null) {
+                    break;
+                }
+                c = l.completion;
+            }
+            if (nextListeners != null) {
+                ls = nextListeners;
+                r = nextResult;
+            } else if (stack != null && !stack.isEmpty()) {
+                ls = stack.pop();
+                r = stack.pop();
+            } else {
+                return;
+            }
+        }
+    }
+
+    private static boolean isResult(Object s) {
+        return s != null && !(s instanceof Completion) && !(s instanceof Listeners);
+    }
+
+    /**
+     * state for value; values that could be taken for a listener are wrapped as well
+     */
+    private static Object encode(Object value) {
+        if (value == null) {
+            return NIL;
+        }
+        return value instanceof Completion ? new AltResult(value, null) : value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T valueOf(Object result) {
+        return (T) (result instanceof AltResult ? ((AltResult) result).value : result);
+    }
+
+    private static Throwable failureOf(Object result) {
+        return result instanceof AltResult ? ((AltResult) result).failure : null;
+    }
+
+
+    /**
+     * listener registered in state
+     */
+    private interface Completion {
+        /**
+         * @return listeners of the stage this completion has completed, to be notified by the caller, or null
+         */
+        Object fire(Object result);
+    }
+
+    private static final class Action implements Completion {
+        private final BiConsumer<Object, Throwable> action;
+
+        @SuppressWarnings("unchecked")
+        Action(BiConsumer<?, ? super Throwable> action) {
+            this.action = (BiConsumer<Object, Throwable>) action;
+        }
+
+        @Override
+        public Object fire(Object result) {
+            try {
+                action.accept(valueOf(result), failureOf(result));
+            } catch (Throwable ex) {
+                Thread t = Thread.currentThread();
+                t.getUncaughtExceptionHandler().uncaughtException(t, ex);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * stage of map, completed by its source
+     */
+    private static final class Mapped<T, U> extends Promise<U> implements Completion {
+        private final Function<? super T, ? extends U> mapper;
+
+        Mapped(Function<? super T, ? extends U> mapper) {
+            this.mapper = mapper;
+        }
+
+        @Override
+        public Object fire(Object result) {
+            if (failureOf(result) != null) {
+                // the failure is shared as is
+                return super.completeNested(result);
+            }
+            Object out;
+            try {
+                out = encode(mapper.apply(valueOf(result)));
+            } catch (Throwable ex) {
+                out = new AltResult(null, ex);
+            }
+            return super.completeNested(out);
+        }
+    }
+
+    /**
+     * stage of flatMap, completed by its source and then by the promise returned from mapper
+     */
+    private static final class FlatMapped<T, U> extends Promise<U> implements Completion {
+        private Function<? super T, Promise<U>> mapper;
+
+        FlatMapped(Function<? super T, Promise<U>> mapper) {
+            this.mapper = mapper;
+        }
+
+        @Override
+        public Object fire(Object result) {
+            Function<? super T, Promise<U>> m = mapper;
+            if (m == null || failureOf(result) != null) {
+                return super.completeNested(result);
+            }
+            // the next firing is the result of the inner promise
+            mapper = null;
+            Promise<U> next;
+            try {
+                next = requireNonNull(m.apply(valueOf(result)));
+            } catch (Throwable ex) {
+                return super.completeNested(new AltResult(null, ex));
+            }
+            Object s = next.state;
+            if (isResult(s)) {
+                return super.completeNested(s);
+            }
+            next.addCompletion(this);
+            return null;
+        }
+    }
+
+    private static final class AltResult {
+        final Object value;
+        final Throwable failure;
+
+        AltResult(Object value, Throwable failure) {
+            this.value = value;
+            this.failure = failure;
+        }
+    }
+
+    private static final class Listeners {
+        final Completion completion;
+        final Object next;
+
+        Listeners(Completion completion, Object next) {
+            this.completion = completion;
+            this.next = next;
+        }
+    }
+
+}
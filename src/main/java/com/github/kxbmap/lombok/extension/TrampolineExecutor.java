@@ -0,0 +1,130 @@
+/*
+ * Copyright 2014 Tsukasa Kitachi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.kxbmap.lombok.extension;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.function.BooleanSupplier;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Executor that runs tasks inline when called from one of its own tasks.
+ * <p>
+ * Tasks submitted from another thread are handed to the underlying executor. Tasks submitted while already
+ * running on it are run inline up to {@code maxDepth} nested levels, and queued on a thread-local trampoline
+ * beyond that, so deep chains of dependent stages do not overflow the stack. Given a membership test such as
+ * {@link EventLoopExecutor#inEventLoop()}, tasks submitted from a thread of the underlying executor are run
+ * inline as well.
+ * <p>
+ * Exceptions thrown by tasks go to the uncaught exception handler of the running thread, whether run inline or
+ * not.
+ */
+public class TrampolineExecutor implements Executor {
+
+    public static final int DEFAULT_MAX_DEPTH = 16;
+
+    private final Executor executor;
+    private final int maxDepth;
+    private final BooleanSupplier inExecutorThread;
+    private final ThreadLocal<Frame> frame = new ThreadLocal<>();
+
+    public TrampolineExecutor(Executor executor) {
+        this(executor, DEFAULT_MAX_DEPTH);
+    }
+
+    public TrampolineExecutor(Executor executor, int maxDepth) {
+        this(executor, maxDepth, () -> false);
+    }
+
+    /**
+     * @param inExecutorThread whether the current thread belongs to {@code executor}
+     */
+    public TrampolineExecutor(Executor executor, BooleanSupplier inExecutorThread) {
+        this(executor, DEFAULT_MAX_DEPTH, inExecutorThread);
+    }
+
+    /**
+     * @param inExecutorThread whether the current thread belongs to {@code executor}
+     */
+    public TrampolineExecutor(Executor executor, int maxDepth, BooleanSupplier inExecutorThread) {
+        if (maxDepth < 0) {
+            throw new IllegalArgumentException("maxDepth: " + maxDepth);
+        }
+        this.executor = requireNonNull(executor);
+        this.maxDepth = maxDepth;
+        this.inExecutorThread = requireNonNull(inExecutorThread);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        requireNonNull(command);
+        Frame f = frame.get();
+        if (f == null) {
+            if (inExecutorThread.getAsBoolean()) {
+                runLoop(command);
+            } else {
+                executor.execute(() -> runLoop(command));
+            }
+        } else if (f.depth < maxDepth) {
+            f.depth++;
+            try {
+                run(command);
+            } finally {
+                f.depth--;
+            }
+        } else {
+            f.queue.add(command);
+        }
+    }
+
+    /**
+     * whether the current thread is running a task of this executor
+     */
+    public boolean inExecutor() {
+        return frame.get() != null;
+    }
+
+    private void runLoop(Runnable command) {
+        Frame f = new Frame();
+        frame.set(f);
+        try {
+            run(command);
+            Runnable task;
+            while ((task = f.queue.poll()) != null) {
+                run(task);
+            }
+        } finally {
+            frame.remove();
+        }
+    }
+
+    private static void run(Runnable task) {
+        try {
+            task.run();
+        } catch (Throwable ex) {
+            Thread t = Thread.currentThread();
+            t.getUncaughtExceptionHandler().uncaughtException(t, ex);
+        }
+    }
+
+    private static final class Frame {
+        final ArrayDeque<Runnable> queue = new ArrayDeque<>();
+        int depth;
+    }
+
+}
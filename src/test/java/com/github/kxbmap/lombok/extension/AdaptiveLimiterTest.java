@@ -0,0 +1,187 @@
+/*
+ * Copyright 2014 Tsukasa Kitachi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.kxbmap.lombok.extension;
+
+import com.github.kxbmap.lombok.extension.AdaptiveLimiter.LimitExceededException;
+import lombok.experimental.ExtensionMethod;
+import org.junit.Test;
+
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@ExtensionMethod(FutureExtensions.class)
+public class AdaptiveLimiterTest {
+
+    private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * Dependency on a virtual clock whose latency grows with the number of concurrent requests
+     */
+    private static class FakeDependency {
+        final long baseLatency;
+        final long latencyPerRequest;
+        final PriorityQueue<Response> responses = new PriorityQueue<>();
+        long now;
+        long seq;
+        int inFlight;
+        long completed;
+        long maxLatency;
+
+        FakeDependency(long baseLatency, long latencyPerRequest) {
+            this.baseLatency = baseLatency;
+            this.latencyPerRequest = latencyPerRequest;
+        }
+
+        CompletableFuture<Integer> call() {
+            inFlight++;
+            CompletableFuture<Integer> future = new CompletableFuture<>();
+            responses.add(new Response(now, now + baseLatency + latencyPerRequest * inFlight, seq++, future));
+            return future;
+        }
+
+        void advanceTo(long time) {
+            while (!responses.isEmpty() && responses.peek().at <= time) {
+                Response r = responses.poll();
+                now = r.at;
+                inFlight--;
+                completed++;
+                maxLatency = Math.max(maxLatency, r.at - r.start);
+                r.future.complete(0);
+            }
+            now = time;
+        }
+    }
+
+    private static class Response implements Comparable<Response> {
+        final long start;
+        final long at;
+        final long seq;
+        final CompletableFuture<Integer> future;
+
+        Response(long start, long at, long seq, CompletableFuture<Integer> future) {
+            this.start = start;
+            this.at = at;
+            this.seq = seq;
+            this.future = future;
+        }
+
+        @Override
+        public int compareTo(Response o) {
+            return at != o.at ? Long.compare(at, o.at) : Long.compare(seq, o.seq);
+        }
+    }
+
+    /**
+     * offer requestsPerMilli for the duration and return the dependency
+     */
+    private FakeDependency simulate(AdaptiveLimiter limiter, FakeDependency dependency, int requestsPerMilli, long millis) {
+        Supplier<CompletableFuture<Integer>> task = dependency::call;
+        for (long t = 0; t < millis; t++) {
+            dependency.advanceTo(t * MILLIS);
+            for (int i = 0; i < requestsPerMilli; i++) {
+                task.limited(limiter);
+            }
+        }
+        return dependency;
+    }
+
+    @Test
+    public void shedLoadBeforeLatencyCollapses() {
+        FakeDependency dependency = new FakeDependency(10 * MILLIS, MILLIS / 2);
+        AdaptiveLimiter limiter = new AdaptiveLimiter(20, 1, 1000, () -> dependency.now);
+
+        simulate(limiter, dependency, 20, 10000);
+
+        assertTrue("limit: " + limiter.limit(), limiter.limit() < 50);
+        assertTrue("max latency: " + dependency.maxLatency, dependency.maxLatency < 50 * MILLIS);
+        assertTrue("completed: " + dependency.completed, dependency.completed > 5000);
+        assertTrue("rejected: " + limiter.rejected(), limiter.rejected() > 0);
+    }
+
+    @Test
+    public void growLimitWhileLatencyIsFlat() {
+        FakeDependency dependency = new FakeDependency(10 * MILLIS, 0);
+        AdaptiveLimiter limiter = new AdaptiveLimiter(10, 1, 200, () -> dependency.now);
+
+        simulate(limiter, dependency, 20, 2000);
+
+        assertThat(limiter.limit(), is(200));
+    }
+
+    @Test
+    public void unlimitedBaselineCollapses() {
+        FakeDependency dependency = new FakeDependency(10 * MILLIS, MILLIS / 2);
+        AdaptiveLimiter limiter = new AdaptiveLimiter(Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE);
+
+        simulate(limiter, dependency, 20, 1000);
+
+        assertTrue("max latency: " + dependency.maxLatency, dependency.maxLatency > 100 * MILLIS);
+    }
+
+    @Test
+    public void shrinkLimitOnFailure() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(100, 1, 1000);
+        limiter.call(() -> FutureExtensions.exceptionallyFuture(new Exception()));
+        assertThat(limiter.limit(), is(90));
+        assertThat(limiter.inFlight(), is(0));
+    }
+
+    @Test
+    public void taskThrowsFailsFuture() throws Exception {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(1, 1, 1);
+        RuntimeException ex = new RuntimeException();
+        CompletableFuture<Integer> f = limiter.call(() -> {
+            throw ex;
+        });
+        try {
+            f.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), is(ex));
+        }
+        assertThat(limiter.inFlight(), is(0));
+    }
+
+    @Test
+    public void rejectBeyondLimit() throws Exception {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(1, 1, 1);
+        CompletableFuture<Integer> task = new CompletableFuture<>();
+        limiter.call(() -> task);
+
+        CompletableFuture<Integer> f = limiter.call(() -> CompletableFuture.completedFuture(42));
+        try {
+            f.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), is(instanceOf(LimitExceededException.class)));
+        }
+        assertThat(limiter.rejected(), is(1L));
+
+        task.complete(0);
+        assertThat(limiter.inFlight(), is(0));
+    }
+
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2014 Tsukasa Kitachi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.kxbmap.lombok.extension;
+
+import com.github.kxbmap.lombok.extension.AsyncSemaphore.Permit;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class AsyncMutexTest {
+
+    @Test
+    public void lockAndUnlock() throws Exception {
+        AsyncMutex mutex = new AsyncMutex();
+        assertThat(mutex.isLocked(), is(false));
+
+        Permit p = mutex.acquire().get();
+        assertThat(mutex.isLocked(), is(true));
+
+        CompletableFuture<Permit> q = mutex.acquire();
+        assertThat(q.isDone(), is(false));
+
+        p.release();
+        assertThat(q.isDone(), is(true));
+        assertThat(mutex.isLocked(), is(true));
+
+        q.get().release();
+        assertThat(mutex.isLocked(), is(false));
+    }
+
+    @Test
+    public void withPermitIsExclusive() throws Exception {
+        AsyncMutex mutex = new AsyncMutex();
+        CompletableFuture<Integer> first = new CompletableFuture<>();
+        CompletableFuture<Integer> a = mutex.withPermit(() -> first);
+        CompletableFuture<Integer> b = mutex.withPermit(() -> CompletableFuture.completedFuture(2));
+
+        assertThat(b.isDone(), is(false));
+        first.complete(1);
+        assertThat(a.get(), is(1));
+        assertThat(b.get(), is(2));
+        assertThat(mutex.isLocked(), is(false));
+    }
+
+}
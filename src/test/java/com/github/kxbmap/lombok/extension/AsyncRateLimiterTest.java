@@ -0,0 +1,165 @@
+/*
+ * Copyright 2014 Tsukasa Kitachi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.kxbmap.lombok.extension;
+
+import lombok.experimental.ExtensionMethod;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@ExtensionMethod(FutureExtensions.class)
+public class AsyncRateLimiterTest {
+
+    private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static ScheduledExecutorService scheduler;
+
+    private final AtomicLong now = new AtomicLong(-12345 * MILLIS);
+
+    @BeforeClass
+    public static void setupScheduler() throws Exception {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @AfterClass
+    public static void shutdownScheduler() throws Exception {
+        scheduler.shutdown();
+        scheduler = null;
+    }
+
+    @Test
+    public void reserveWithinBurst() {
+        AsyncRateLimiter limiter = new AsyncRateLimiter(1000, 3, scheduler, Runnable::run, now::get);
+        assertThat(limiter.reserve(1), is(0L));
+        assertThat(limiter.reserve(1), is(0L));
+        assertThat(limiter.reserve(1), is(0L));
+        assertThat(limiter.reserve(1), is(MILLIS));
+        assertThat(limiter.reserve(1), is(2 * MILLIS));
+    }
+
+    @Test
+    public void refillOverTime() {
+        AsyncRateLimiter limiter = new AsyncRateLimiter(1000, 2, scheduler, Runnable::run, now::get);
+        limiter.reserve(2);
+        assertThat(limiter.tryAcquire(1), is(false));
+
+        now.addAndGet(MILLIS);
+        assertThat(limiter.tryAcquire(1), is(true));
+        assertThat(limiter.tryAcquire(1), is(false));
+
+        // idle time refills up to the burst only
+        now.addAndGet(100 * MILLIS);
+        assertThat(limiter.tryAcquire(2), is(true));
+        assertThat(limiter.tryAcquire(1), is(false));
+    }
+
+    @Test
+    public void reserveWeightedPermits() {
+        AsyncRateLimiter limiter = new AsyncRateLimiter(1000, 1, scheduler, Runnable::run, now::get);
+        assertThat(limiter.reserve(5), is(4 * MILLIS));
+        assertThat(limiter.reserve(1), is(5 * MILLIS));
+    }
+
+    @Test
+    public void rateLimitedDelaysCall() throws Exception {
+        AsyncRateLimiter limiter = new AsyncRateLimiter(50, 1, scheduler);
+        AtomicInteger calls = new AtomicInteger();
+        Supplier<CompletableFuture<Integer>> task = () -> CompletableFuture.completedFuture(calls.incrementAndGet());
+
+        long start = System.nanoTime();
+        CompletableFuture<Integer> a = task.rateLimited(limiter);
+        CompletableFuture<Integer> b = task.rateLimited(limiter);
+        CompletableFuture<Integer> c = task.rateLimited(limiter, 2);
+
+        assertThat(a.isDone(), is(true));
+        assertThat(b.isDone(), is(false));
+        assertThat(b.get(), is(2));
+        assertThat(c.get(), is(3));
+        assertTrue(System.nanoTime() - start >= 60 * MILLIS);
+    }
+
+    @Test
+    public void cancelledCallIsNotStarted() throws Exception {
+        AsyncRateLimiter limiter = new AsyncRateLimiter(100, 1, scheduler);
+        AtomicInteger calls = new AtomicInteger();
+        Supplier<CompletableFuture<Integer>> task = () -> CompletableFuture.completedFuture(calls.incrementAndGet());
+
+        task.rateLimited(limiter);
+        CompletableFuture<Integer> b = task.rateLimited(limiter);
+        b.cancel(false);
+        task.rateLimited(limiter).get();
+
+        assertThat(calls.get(), is(2));
+    }
+
+    @Test
+    public void delayedCallRunsOnExecutor() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Thread executorThread = executor.submit(Thread::currentThread).get();
+            AsyncRateLimiter limiter = new AsyncRateLimiter(100, 1, scheduler, executor);
+            Supplier<CompletableFuture<Thread>> task = () -> CompletableFuture.completedFuture(Thread.currentThread());
+
+            assertThat(task.rateLimited(limiter).get(), is(Thread.currentThread()));
+            assertThat(task.rateLimited(limiter).get(), is(executorThread));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void supplierExceptionFailsFuture() throws Exception {
+        AsyncRateLimiter limiter = new AsyncRateLimiter(100, 1, scheduler);
+        RuntimeException ex = new RuntimeException();
+        Supplier<CompletableFuture<Integer>> task = () -> {
+            throw ex;
+        };
+
+        CompletableFuture<Integer> a = task.rateLimited(limiter);
+        CompletableFuture<Integer> b = task.rateLimited(limiter);
+        for (CompletableFuture<Integer> f : Arrays.asList(a, b)) {
+            try {
+                f.get();
+                fail();
+            } catch (ExecutionException e) {
+                assertThat(e.getCause(), is(ex));
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidPermits() {
+        new AsyncRateLimiter(1, 1).reserve(0);
+    }
+
+}
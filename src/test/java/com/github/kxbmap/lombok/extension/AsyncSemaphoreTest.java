@@ -0,0 +1,200 @@
+/*
+ * Copyright 2014 Tsukasa Kitachi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.kxbmap.lombok.extension;
+
+import com.github.kxbmap.lombok.extension.AsyncSemaphore.Permit;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class AsyncSemaphoreTest {
+
+    @Test
+    public void acquireIfAvailable() {
+        AsyncSemaphore semaphore = new AsyncSemaphore(2);
+        CompletableFuture<Permit> p = semaphore.acquire();
+
+        assertThat(p.isDone(), is(true));
+        assertThat(semaphore.availablePermits(), is(1));
+    }
+
+    @Test
+    public void acquireWaitsForRelease() throws Exception {
+        AsyncSemaphore semaphore = new AsyncSemaphore(1);
+        Permit p = semaphore.acquire().get();
+        CompletableFuture<Permit> q = semaphore.acquire();
+
+        assertThat(q.isDone(), is(false));
+        assertThat(semaphore.availablePermits(), is(0));
+        assertThat(semaphore.queueLength(), is(1));
+
+        p.release();
+        assertThat(q.isDone(), is(true));
+        assertThat(semaphore.queueLength(), is(0));
+    }
+
+    @Test
+    public void waitersAreFifo() throws Exception {
+        AsyncSemaphore semaphore = new AsyncSemaphore(1);
+        Permit p = semaphore.acquire().get();
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            int n = i;
+            semaphore.acquire().thenAccept(q -> {
+                order.add(n);
+                q.release();
+            });
+        }
+        p.release();
+
+        assertThat(order.size(), is(3));
+        assertThat(order.get(0), is(0));
+        assertThat(order.get(1), is(1));
+        assertThat(order.get(2), is(2));
+        assertThat(semaphore.availablePermits(), is(1));
+    }
+
+    @Test
+    public void releaseTwiceHasNoEffect() throws Exception {
+        AsyncSemaphore semaphore = new AsyncSemaphore(1);
+        Permit p = semaphore.acquire().get();
+        p.release();
+        p.close();
+        assertThat(semaphore.availablePermits(), is(1));
+    }
+
+    @Test
+    public void cancelledWaiterPassesPermitOn() throws Exception {
+        AsyncSemaphore semaphore = new AsyncSemaphore(1);
+        Permit p = semaphore.acquire().get();
+        CompletableFuture<Permit> q = semaphore.acquire();
+        CompletableFuture<Permit> r = semaphore.acquire();
+
+        q.cancel(false);
+        p.release();
+
+        assertThat(r.isDone(), is(true));
+        r.get().release();
+        assertThat(semaphore.availablePermits(), is(1));
+    }
+
+    @Test
+    public void tryAcquire() {
+        AsyncSemaphore semaphore = new AsyncSemaphore(1);
+        Permit p = semaphore.tryAcquire();
+        assertThat(p, is(notNullValue()));
+        assertThat(semaphore.tryAcquire(), is(nullValue()));
+        p.release();
+        assertThat(semaphore.tryAcquire(), is(notNullValue()));
+    }
+
+    @Test
+    public void withPermitLimitsConcurrency() throws Exception {
+        AsyncSemaphore semaphore = new AsyncSemaphore(2);
+        AtomicInteger started = new AtomicInteger();
+        List<CompletableFuture<Integer>> tasks = new ArrayList<>();
+        List<CompletableFuture<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            CompletableFuture<Integer> task = new CompletableFuture<>();
+            tasks.add(task);
+            results.add(semaphore.withPermit(() -> {
+                started.incrementAndGet();
+                return task;
+            }));
+        }
+
+        assertThat(started.get(), is(2));
+        tasks.get(0).complete(0);
+        assertThat(started.get(), is(3));
+        assertThat(results.get(0).get(), is(0));
+        for (int i = 1; i < 5; i++) {
+            tasks.get(i).complete(i);
+        }
+        assertThat(started.get(), is(5));
+        assertThat(semaphore.availablePermits(), is(2));
+    }
+
+    @Test
+    public void withPermitReleasesIfTaskThrows() throws Exception {
+        AsyncSemaphore semaphore = new AsyncSemaphore(1);
+        RuntimeException ex = new RuntimeException();
+        CompletableFuture<Integer> f = semaphore.withPermit(() -> {
+            throw ex;
+        });
+        try {
+            f.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), is(ex));
+        }
+        assertThat(semaphore.availablePermits(), is(1));
+    }
+
+    @Test
+    public void withPermitCancelledWhileWaiting() throws Exception {
+        AsyncSemaphore semaphore = new AsyncSemaphore(1);
+        CompletableFuture<Integer> first = new CompletableFuture<>();
+        AtomicInteger calls = new AtomicInteger();
+
+        semaphore.withPermit(() -> first);
+        CompletableFuture<Integer> second = semaphore.withPermit(() -> {
+            calls.incrementAndGet();
+            return CompletableFuture.completedFuture(2);
+        });
+        second.cancel(false);
+        first.complete(1);
+
+        assertThat(calls.get(), is(0));
+        assertThat(semaphore.availablePermits(), is(1));
+        assertThat(semaphore.withPermit(() -> CompletableFuture.completedFuture(3)).get(), is(3));
+        assertThat(semaphore.availablePermits(), is(1));
+    }
+
+    @Test
+    public void withPermitGrantedAfterCompletedWhileWaiting() throws Exception {
+        AsyncSemaphore semaphore = new AsyncSemaphore(1);
+        Permit permit = semaphore.tryAcquire();
+        AtomicInteger calls = new AtomicInteger();
+
+        CompletableFuture<Integer> f = semaphore.withPermit(() -> {
+            calls.incrementAndGet();
+            return CompletableFuture.completedFuture(2);
+        });
+        f.complete(0);
+        permit.release();
+
+        assertThat(calls.get(), is(0));
+        assertThat(semaphore.availablePermits(), is(1));
+        assertThat(semaphore.queueLength(), is(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativePermits() {
+        new AsyncSemaphore(-1);
+    }
+
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2014 Tsukasa Kitachi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.kxbmap.lombok.extension;
+
+import com.github.kxbmap.lombok.extension.Bulkhead.BulkheadFullException;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class BulkheadTest {
+
+    @Test
+    public void callWithinLimit() throws Exception {
+        Bulkhead bulkhead = FutureExtensions.bulkhead(1, 0);
+        CompletableFuture<Integer> task = new CompletableFuture<>();
+        CompletableFuture<Integer> f = bulkhead.call(() -> task);
+
+        assertThat(bulkhead.inFlight(), is(1));
+        task.complete(42);
+        assertThat(f.get(), is(42));
+        assertThat(bulkhead.inFlight(), is(0));
+    }
+
+    @Test
+    public void queueBeyondMaxInFlight() throws Exception {
+        Bulkhead bulkhead = FutureExtensions.bulkhead(1, 1);
+        CompletableFuture<Integer> first = new CompletableFuture<>();
+        CompletableFuture<Integer> a = bulkhead.call(() -> first);
+        CompletableFuture<Integer> b = bulkhead.call(() -> CompletableFuture.completedFuture(2));
+
+        assertThat(bulkhead.inFlight(), is(1));
+        assertThat(bulkhead.queued(), is(1));
+        assertThat(b.isDone(), is(false));
+
+        first.complete(1);
+        assertThat(a.get(), is(1));
+        assertThat(b.get(), is(2));
+        assertThat(bulkhead.inFlight(), is(0));
+        assertThat(bulkhead.queued(), is(0));
+    }
+
+    @Test
+    public void rejectBeyondBothLimits() throws Exception {
+        Bulkhead bulkhead = FutureExtensions.bulkhead(2, 1);
+        List<CompletableFuture<Integer>> tasks = new ArrayList<>();
+        List<CompletableFuture<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            CompletableFuture<Integer> task = new CompletableFuture<>();
+            tasks.add(task);
+            results.add(bulkhead.call(() -> task));
+        }
+
+        assertThat(bulkhead.inFlight(), is(2));
+        assertThat(bulkhead.queued(), is(1));
+        assertThat(bulkhead.rejected(), is(2L));
+        for (int i = 3; i < 5; i++) {
+            try {
+                results.get(i).get();
+                fail();
+            } catch (ExecutionException e) {
+                assertThat(e.getCause(), is(instanceOf(BulkheadFullException.class)));
+                assertThat(e.getCause().getStackTrace().length, is(0));
+            }
+        }
+
+        for (CompletableFuture<Integer> task : tasks) {
+            task.complete(0);
+        }
+        assertThat(bulkhead.inFlight(), is(0));
+    }
+
+    @Test
+    public void releaseIfTaskFails() throws Exception {
+        Bulkhead bulkhead = FutureExtensions.bulkhead(1, 0);
+        Exception ex = new Exception();
+        CompletableFuture<Integer> f = bulkhead.call(() -> FutureExtensions.exceptionallyFuture(ex));
+        try {
+            f.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), is(ex));
+        }
+        assertThat(bulkhead.inFlight(), is(0));
+    }
+
+    @Test
+    public void cancelQueuedCall() throws Exception {
+        Bulkhead bulkhead = FutureExtensions.bulkhead(1, 1);
+        CompletableFuture<Integer> first = new CompletableFuture<>();
+        AtomicInteger calls = new AtomicInteger();
+        bulkhead.call(() -> first);
+        CompletableFuture<Integer> queued = bulkhead.call(() -> {
+            calls.incrementAndGet();
+            return CompletableFuture.completedFuture(2);
+        });
+
+        queued.cancel(false);
+        assertThat(bulkhead.queued(), is(0));
+        first.complete(1);
+
+        assertThat(calls.get(), is(0));
+        assertThat(bulkhead.inFlight(), is(0));
+        assertThat(bulkhead.call(() -> CompletableFuture.completedFuture(3)).get(), is(3));
+        assertThat(bulkhead.rejected(), is(0L));
+    }
+
+    @Test
+    public void taskThrowsFailsFuture() throws Exception {
+        Bulkhead bulkhead = FutureExtensions.bulkhead(1, 1);
+        RuntimeException ex = new RuntimeException();
+        Supplier<CompletableFuture<Integer>> task = () -> {
+            throw ex;
+        };
+        CompletableFuture<Integer> first = new CompletableFuture<>();
+
+        CompletableFuture<Integer> immediate = bulkhead.call(task);
+        bulkhead.call(() -> first);
+        CompletableFuture<Integer> queued = bulkhead.call(task);
+        first.complete(1);
+
+        for (CompletableFuture<Integer> f : Arrays.asList(immediate, queued)) {
+            try {
+                f.get();
+                fail();
+            } catch (ExecutionException e) {
+                assertThat(e.getCause(), is(ex));
+            }
+        }
+        assertThat(bulkhead.inFlight(), is(0));
+        assertThat(bulkhead.queued(), is(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidMaxInFlight() {
+        FutureExtensions.bulkhead(0, 0);
+    }
+
+}
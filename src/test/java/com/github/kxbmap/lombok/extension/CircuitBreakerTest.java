@@ -0,0 +1,245 @@
+/*
+ * Copyright 2014 Tsukasa Kitachi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.kxbmap.lombok.extension;
+
+import com.github.kxbmap.lombok.extension.CircuitBreaker.CircuitBreakerOpenException;
+import com.github.kxbmap.lombok.extension.CircuitBreaker.State;
+import lombok.experimental.ExtensionMethod;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+@ExtensionMethod(FutureExtensions.class)
+public class CircuitBreakerTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    private CircuitBreaker breaker() {
+        // window 10, at least 4 calls, 50% failures or 50% calls slower than 100ms, open for 1s,
+        // trial calls awaited for 2s
+        return new CircuitBreaker(10, 4, 50, 50, 100, 1000, 2000, TimeUnit.MILLISECONDS, now::get);
+    }
+
+    private static Supplier<CompletableFuture<Integer>> success() {
+        return () -> CompletableFuture.completedFuture(42);
+    }
+
+    private static Supplier<CompletableFuture<Integer>> failure() {
+        return () -> FutureExtensions.exceptionallyFuture(new Exception());
+    }
+
+    private void assertRejected(CompletableFuture<?> f) throws Exception {
+        try {
+            f.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), is(instanceOf(CircuitBreakerOpenException.class)));
+        }
+    }
+
+    @Test
+    public void staysClosedBelowThreshold() {
+        CircuitBreaker breaker = breaker();
+        for (int i = 0; i < 10; i++) {
+            success().withCircuitBreaker(breaker);
+        }
+        failure().withCircuitBreaker(breaker);
+        failure().withCircuitBreaker(breaker);
+        assertThat(breaker.state(), is(State.CLOSED));
+    }
+
+    @Test
+    public void staysClosedBelowMinimumCalls() {
+        CircuitBreaker breaker = breaker();
+        for (int i = 0; i < 3; i++) {
+            failure().withCircuitBreaker(breaker);
+        }
+        assertThat(breaker.state(), is(State.CLOSED));
+    }
+
+    @Test
+    public void opensOnFailureRate() throws Exception {
+        CircuitBreaker breaker = breaker();
+        success().withCircuitBreaker(breaker);
+        success().withCircuitBreaker(breaker);
+        failure().withCircuitBreaker(breaker);
+        assertThat(breaker.state(), is(State.CLOSED));
+        failure().withCircuitBreaker(breaker);
+        assertThat(breaker.state(), is(State.OPEN));
+
+        AtomicInteger calls = new AtomicInteger();
+        assertRejected(breaker.call(() -> {
+            calls.incrementAndGet();
+            return CompletableFuture.completedFuture(42);
+        }));
+        assertThat(calls.get(), is(0));
+    }
+
+    @Test
+    public void opensOnSlowCallRate() throws Exception {
+        CircuitBreaker breaker = breaker();
+        for (int i = 0; i < 4; i++) {
+            CompletableFuture<Integer> task = new CompletableFuture<>();
+            breaker.call(() -> task);
+            now.addAndGet(TimeUnit.MILLISECONDS.toNanos(200));
+            task.complete(42);
+        }
+        assertThat(breaker.state(), is(State.OPEN));
+    }
+
+    @Test
+    public void slidingWindowForgetsOldFailures() {
+        CircuitBreaker breaker = breaker();
+        for (int i = 0; i < 4; i++) {
+            success().withCircuitBreaker(breaker);
+        }
+        for (int i = 0; i < 4; i++) {
+            failure().withCircuitBreaker(breaker);
+            success().withCircuitBreaker(breaker);
+        }
+        // window: s s f s f s f s f s -> 40%
+        assertThat(breaker.state(), is(State.CLOSED));
+        failure().withCircuitBreaker(breaker);
+        // window: s f s f s f s f s f -> 50%
+        assertThat(breaker.state(), is(State.OPEN));
+    }
+
+    @Test
+    public void halfOpenThenClose() throws Exception {
+        CircuitBreaker breaker = breaker();
+        for (int i = 0; i < 4; i++) {
+            failure().withCircuitBreaker(breaker);
+        }
+        assertThat(breaker.state(), is(State.OPEN));
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        CompletableFuture<Integer> trial = new CompletableFuture<>();
+        breaker.call(() -> trial);
+        assertThat(breaker.state(), is(State.HALF_OPEN));
+        for (int i = 0; i < 3; i++) {
+            success().withCircuitBreaker(breaker);
+        }
+        // no more trial calls until they complete
+        assertRejected(success().withCircuitBreaker(breaker));
+
+        trial.complete(42);
+        assertThat(breaker.state(), is(State.CLOSED));
+        assertThat(success().withCircuitBreaker(breaker).get(), is(42));
+    }
+
+    @Test
+    public void halfOpenThenOpen() throws Exception {
+        CircuitBreaker breaker = breaker();
+        for (int i = 0; i < 4; i++) {
+            failure().withCircuitBreaker(breaker);
+        }
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        success().withCircuitBreaker(breaker);
+        success().withCircuitBreaker(breaker);
+        failure().withCircuitBreaker(breaker);
+        failure().withCircuitBreaker(breaker);
+
+        assertThat(breaker.state(), is(State.OPEN));
+        assertRejected(success().withCircuitBreaker(breaker));
+    }
+
+    @Test
+    public void halfOpenThenOpenIfTrialNeverCompletes() throws Exception {
+        CircuitBreaker breaker = breaker();
+        for (int i = 0; i < 4; i++) {
+            failure().withCircuitBreaker(breaker);
+        }
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        breaker.call(CompletableFuture::new);
+        for (int i = 0; i < 3; i++) {
+            success().withCircuitBreaker(breaker);
+        }
+
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(1999));
+        assertRejected(success().withCircuitBreaker(breaker));
+        assertThat(breaker.state(), is(State.HALF_OPEN));
+
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(1));
+        assertRejected(success().withCircuitBreaker(breaker));
+        assertThat(breaker.state(), is(State.OPEN));
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertThat(success().withCircuitBreaker(breaker).get(), is(42));
+        assertThat(breaker.state(), is(State.HALF_OPEN));
+    }
+
+    @Test
+    public void ignoreResultsFromPreviousState() {
+        CircuitBreaker breaker = breaker();
+        CompletableFuture<Integer> late = new CompletableFuture<>();
+        breaker.call(() -> late);
+        for (int i = 0; i < 4; i++) {
+            failure().withCircuitBreaker(breaker);
+        }
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        for (int i = 0; i < 3; i++) {
+            success().withCircuitBreaker(breaker);
+        }
+        late.completeExceptionally(new Exception());
+        assertThat(breaker.state(), is(State.HALF_OPEN));
+    }
+
+    @Test
+    public void taskThrowsFailsFutureAndCountsAsFailure() throws Exception {
+        CircuitBreaker breaker = breaker();
+        RuntimeException ex = new RuntimeException();
+        Supplier<CompletableFuture<Integer>> task = () -> {
+            throw ex;
+        };
+        for (int i = 0; i < 4; i++) {
+            CompletableFuture<Integer> f = task.withCircuitBreaker(breaker);
+            try {
+                f.get();
+                fail();
+            } catch (ExecutionException e) {
+                assertThat(e.getCause(), is(ex));
+            }
+        }
+        assertThat(breaker.state(), is(State.OPEN));
+    }
+
+    @Test
+    public void rejectionIsStackless() throws Exception {
+        CircuitBreaker breaker = breaker();
+        for (int i = 0; i < 4; i++) {
+            failure().withCircuitBreaker(breaker);
+        }
+        CompletableFuture<Integer> f = success().withCircuitBreaker(breaker);
+        try {
+            f.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertThat(e.getCause().getStackTrace().length, is(0));
+        }
+    }
+
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2014 Tsukasa Kitachi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.kxbmap.lombok.extension;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class CompletionOrderTest {
+
+    @Test
+    public void completionOrder() throws Exception {
+        CompletableFuture<Integer> a = new CompletableFuture<>();
+        CompletableFuture<Integer> b = new CompletableFuture<>();
+        CompletableFuture<Integer> c = CompletableFuture.completedFuture(3);
+        CompletionOrder<Integer> it = new CompletionOrder<>(Arrays.asList(a, b, c));
+
+        assertThat(it.next(), is(c));
+        b.complete(2);
+        assertThat(it.next(), is(b));
+        a.complete(1);
+        assertThat(it.hasNext(), is(true));
+        assertThat(it.next(), is(a));
+        assertThat(it.hasNext(), is(false));
+    }
+
+    @Test
+    public void nextBlocksUntilCompleted() throws Exception {
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            futures.add(new CompletableFuture<>());
+        }
+        CompletionOrder<Integer> it = new CompletionOrder<>(futures);
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < futures.size(); i++) {
+                futures.get(i).complete(i);
+            }
+        });
+        producer.start();
+
+        long sum = 0;
+        while (it.hasNext()) {
+            sum += it.next().join();
+        }
+        producer.join();
+        assertThat(sum, is(999L * 1000 / 2));
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void nextWhenExhausted() {
+        new CompletionOrder<Integer>(new ArrayList<>()).next();
+    }
+
+    @Test
+    public void nextInterrupted() {
+        CompletionOrder<Integer> it = new CompletionOrder<>(Arrays.asList(new CompletableFuture<>()));
+        Thread.currentThread().interrupt();
+        try {
+            it.next();
+            fail();
+        } catch (CompletionException e) {
+            assertThat(e.getCause() instanceof InterruptedException, is(true));
+        }
+        assertThat(Thread.interrupted(), is(true));
+    }
+
+}
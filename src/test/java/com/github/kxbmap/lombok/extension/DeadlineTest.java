@@ -0,0 +1,59 @@
+/*
+ * Copyright 2014 Tsukasa Kitachi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.kxbmap.lombok.extension;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class DeadlineTest {
+
+    @Test
+    public void expired() throws Exception {
+        Deadline d = Deadline.after(1, TimeUnit.MILLISECONDS);
+        Thread.sleep(5);
+        assertThat(d.isExpired(), is(true));
+        assertThat(d.timeRemaining(TimeUnit.NANOSECONDS) <= 0, is(true));
+    }
+
+    @Test
+    public void notExpired() {
+        Deadline d = Deadline.after(1, TimeUnit.MINUTES);
+        assertThat(d.isExpired(), is(false));
+        assertThat(d.timeRemaining(TimeUnit.SECONDS) > 50, is(true));
+    }
+
+    @Test
+    public void noneNeverOverflows() {
+        assertThat(Deadline.none().isExpired(), is(false));
+        assertThat(Deadline.after(Long.MAX_VALUE, TimeUnit.DAYS).isExpired(), is(false));
+    }
+
+    @Test
+    public void min() {
+        Deadline a = Deadline.after(1, TimeUnit.SECONDS);
+        Deadline b = Deadline.after(1, TimeUnit.MINUTES);
+        assertThat(a.min(b), is(a));
+        assertThat(b.min(a), is(a));
+        assertThat(a.compareTo(b) < 0, is(true));
+        assertThat(b.compareTo(a) > 0, is(true));
+    }
+
+}
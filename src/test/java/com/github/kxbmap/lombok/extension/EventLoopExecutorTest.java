@@ -0,0 +1,249 @@
+/*
+ * Copyright 2014 Tsukasa Kitachi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.kxbmap.lombok.extension;
+
+import com.github.kxbmap.lombok.extension.EventLoopExecutor.WaitStrategy;
+import lombok.experimental.ExtensionMethod;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+@ExtensionMethod(FutureExtensions.class)
+public class EventLoopExecutorTest {
+
+    @Test
+    public void whenCompleteAsync() throws Exception {
+        EventLoopExecutor executor = new EventLoopExecutor();
+        try {
+            CompletableFuture<Integer> f = CompletableFuture.completedFuture(42);
+            AtomicReference<Boolean> inEventLoop = new AtomicReference<>();
+
+            CompletableFuture<Integer> g = f.whenCompleteAsync(
+                n -> inEventLoop.set(executor.inEventLoop()),
+                e -> fail(),
+                executor
+            );
+
+            assertThat(g.get(), is(42));
+            assertThat(inEventLoop.get(), is(true));
+            assertThat(executor.inEventLoop(), is(false));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void orderPerProducerWithPark() throws Exception {
+        orderPerProducer(WaitStrategy.PARK);
+    }
+
+    @Test
+    public void orderPerProducerWithSpin() throws Exception {
+        orderPerProducer(WaitStrategy.SPIN);
+    }
+
+    @Test
+    public void orderPerProducerWithYield() throws Exception {
+        orderPerProducer(WaitStrategy.YIELD);
+    }
+
+    private void orderPerProducer(WaitStrategy waitStrategy) throws Exception {
+        // small capacity to exercise the full queue path
+        EventLoopExecutor executor = new EventLoopExecutor(16, waitStrategy);
+        int producers = 4;
+        int tasks = 2000;
+        int[] last = new int[producers];
+        Arrays.fill(last, -1);
+        List<String> errors = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(producers * tasks);
+
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            threads[p] = new Thread(() -> {
+                for (int i = 0; i < tasks; i++) {
+                    int n = i;
+                    executor.execute(() -> {
+                        if (last[producer] != n - 1) {
+                            errors.add(producer + ": " + last[producer] + " -> " + n);
+                        }
+                        last[producer] = n;
+                        done.countDown();
+                    });
+                }
+            });
+            threads[p].start();
+        }
+
+        assertThat(done.await(10, TimeUnit.SECONDS), is(true));
+        executor.shutdown();
+        assertThat(executor.awaitTermination(1, TimeUnit.SECONDS), is(true));
+        assertThat(errors, is(new ArrayList<String>()));
+    }
+
+    @Test
+    public void executeFromEventLoop() throws Exception {
+        EventLoopExecutor executor = new EventLoopExecutor();
+        List<Integer> order = new ArrayList<>();
+        CompletableFuture<Void> done = new CompletableFuture<>();
+
+        executor.execute(() -> {
+            executor.execute(() -> {
+                order.add(2);
+                done.complete(null);
+            });
+            order.add(1);
+        });
+
+        done.get();
+        executor.shutdown();
+        assertThat(order, is(Arrays.asList(1, 2)));
+    }
+
+    @Test
+    public void shutdownRunsPendingTasks() throws Exception {
+        EventLoopExecutor executor = new EventLoopExecutor();
+        CountDownLatch latch = new CountDownLatch(1);
+        List<Integer> ran = new ArrayList<>();
+
+        executor.execute(() -> {
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        for (int i = 0; i < 10; i++) {
+            int n = i;
+            executor.execute(() -> ran.add(n));
+        }
+        executor.shutdown();
+        latch.countDown();
+
+        assertThat(executor.awaitTermination(1, TimeUnit.SECONDS), is(true));
+        assertThat(executor.isTerminated(), is(true));
+        assertThat(ran, is(Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7, 8, 9)));
+    }
+
+    @Test
+    public void acceptedTasksRunAcrossShutdown() throws Exception {
+        for (int round = 0; round < 50; round++) {
+            EventLoopExecutor executor = new EventLoopExecutor(16, WaitStrategy.PARK, 4, Executors.defaultThreadFactory());
+            AtomicInteger accepted = new AtomicInteger();
+            AtomicInteger ran = new AtomicInteger();
+            CountDownLatch start = new CountDownLatch(1);
+            List<Thread> producers = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                Thread t = new Thread(() -> {
+                    try {
+                        start.await();
+                        for (;;) {
+                            executor.execute(ran::incrementAndGet);
+                            accepted.incrementAndGet();
+                        }
+                    } catch (RejectedExecutionException | InterruptedException ignore) {
+                    }
+                });
+                t.start();
+                producers.add(t);
+            }
+            start.countDown();
+            Thread.sleep(1);
+            executor.shutdown();
+            for (Thread t : producers) {
+                t.join();
+            }
+
+            assertThat(executor.awaitTermination(1, TimeUnit.SECONDS), is(true));
+            assertThat(ran.get(), is(accepted.get()));
+        }
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void rejectAfterShutdown() {
+        EventLoopExecutor executor = new EventLoopExecutor();
+        executor.shutdown();
+        executor.execute(() -> {
+        });
+    }
+
+    @Test
+    public void shutdownNow() throws Exception {
+        EventLoopExecutor executor = new EventLoopExecutor(16, WaitStrategy.PARK, 1, Executors.defaultThreadFactory());
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicReference<Boolean> ran = new AtomicReference<>(false);
+
+        executor.execute(() -> {
+            started.countDown();
+            try {
+                Thread.sleep(10000);
+            } catch (InterruptedException ignore) {
+            }
+        });
+        Runnable pending = () -> ran.set(true);
+        executor.execute(pending);
+        started.await();
+        List<Runnable> tasks = executor.shutdownNow();
+
+        assertThat(executor.awaitTermination(1, TimeUnit.SECONDS), is(true));
+        assertThat(ran.get(), is(false));
+        assertThat(tasks, is(Arrays.asList(pending)));
+    }
+
+    @Test
+    public void shutdownNowReturnsSubmittedFutures() throws Exception {
+        EventLoopExecutor executor = new EventLoopExecutor();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        executor.execute(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ignore) {
+            }
+        });
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            futures.add(executor.submit(() -> 42));
+        }
+        started.await();
+        List<Runnable> tasks = executor.shutdownNow();
+        release.countDown();
+
+        assertThat(executor.awaitTermination(1, TimeUnit.SECONDS), is(true));
+        assertThat(new ArrayList<Object>(tasks), is(new ArrayList<Object>(futures)));
+        for (Future<Integer> f : futures) {
+            assertThat(f.isDone(), is(false));
+        }
+    }
+
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2014 Tsukasa Kitachi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.kxbmap.lombok.extension;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class FutureCollectorsTest {
+
+    @Test
+    public void allOf() throws Exception {
+        CompletableFuture<Integer> a = new CompletableFuture<>();
+        CompletableFuture<Integer> b = CompletableFuture.completedFuture(2);
+
+        CompletableFuture<List<Integer>> f = Stream.of(a, b).collect(FutureCollectors.allOf());
+        assertThat(f.isDone(), is(false));
+        a.complete(1);
+        assertThat(f.get(), is(Arrays.asList(1, 2)));
+    }
+
+    @Test
+    public void allOfParallelKeepsEncounterOrder() throws Exception {
+        List<Integer> expected = IntStream.range(0, 10000).boxed().collect(Collectors.toList());
+
+        CompletableFuture<List<Integer>> f = IntStream.range(0, 10000).parallel()
+            .mapToObj(i -> CompletableFuture.supplyAsync(() -> i))
+            .collect(FutureCollectors.allOf());
+        assertThat(f.get(), is(expected));
+    }
+
+    @Test
+    public void allOfCombinesUnevenPartitionsInOrder() throws Exception {
+        Collector<CompletableFuture<Integer>, Object, CompletableFuture<List<Integer>>> c =
+            cast(FutureCollectors.allOf());
+        Object left = c.supplier().get();
+        c.accumulator().accept(left, CompletableFuture.completedFuture(0));
+        Object right = c.supplier().get();
+        for (int i = 1; i < 1000; i++) {
+            c.accumulator().accept(right, CompletableFuture.completedFuture(i));
+        }
+        Object empty = c.supplier().get();
+
+        Object all = c.combiner().apply(c.combiner().apply(left, empty), right);
+        assertThat(c.finisher().apply(all).get(),
+            is(IntStream.range(0, 1000).boxed().collect(Collectors.toList())));
+    }
+
+    @Test
+    public void allOfEmpty() throws Exception {
+        CompletableFuture<List<Integer>> f = Stream.<CompletableFuture<Integer>>empty()
+            .collect(FutureCollectors.allOf());
+        assertThat(f.get(), is(new ArrayList<Integer>()));
+    }
+
+    @Test
+    public void allOfFailure() throws Exception {
+        Exception ex = new Exception();
+        CompletableFuture<List<Integer>> f = Stream.of(new CompletableFuture<Integer>(),
+            FutureExtensions.<Integer>exceptionallyFuture(ex)).collect(FutureCollectors.allOf());
+        try {
+            f.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), is(ex));
+        }
+    }
+
+    @Test
+    public void reducing() throws Exception {
+        CompletableFuture<Long> f = IntStream.rangeClosed(1, 10000).parallel()
+            .mapToObj(i -> CompletableFuture.supplyAsync(() -> (long) i))
+            .collect(FutureCollectors.reducing(0L, Long::sum));
+        assertThat(f.get(), is(10000L * 10001 / 2));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T, R> Collector<T, Object, R> cast(Collector<T, ?, R> collector) {
+        return (Collector<T, Object, R>) collector;
+    }
+
+}
@@ -21,12 +21,24 @@ import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
+import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.not;
 import static org.junit.Assert.assertThat;
@@ -175,4 +187,641 @@ public class FutureExtensionsTest {
         assertThat(thread.get(), is(executorThread));
     }
 
+
+    // fast paths
+
+    @Test
+    public void mapNowIfCompleted() throws Exception {
+        CompletableFuture<Integer> f = CompletableFuture.completedFuture(42);
+        AtomicReference<Thread> thread = new AtomicReference<>();
+
+        CompletableFuture<Integer> g = f.mapNow(n -> {
+            thread.set(Thread.currentThread());
+            return n + 1;
+        });
+
+        assertThat(g.isDone(), is(true));
+        assertThat(g.get(), is(43));
+        assertThat(thread.get(), is(Thread.currentThread()));
+    }
+
+    @Test
+    public void mapNowIfIncomplete() throws Exception {
+        CompletableFuture<Integer> f = new CompletableFuture<>();
+        CompletableFuture<Integer> g = f.mapNow(n -> n + 1);
+
+        assertThat(g.isDone(), is(false));
+        f.complete(42);
+        assertThat(g.get(), is(43));
+    }
+
+    @Test
+    public void mapNowIfExceptionally() throws Exception {
+        Exception ex = new Exception();
+        CompletableFuture<Integer> g = FutureExtensions.<Integer>exceptionallyFuture(ex).mapNow(n -> n + 1);
+        try {
+            g.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), is(ex));
+        }
+    }
+
+    @Test
+    public void mapNowIfMapperThrows() throws Exception {
+        RuntimeException ex = new RuntimeException();
+        CompletableFuture<Integer> g = CompletableFuture.completedFuture(42).mapNow(n -> {
+            throw ex;
+        });
+        try {
+            g.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), is(ex));
+        }
+    }
+
+    @Test
+    public void fastPathFailsLikeFallback() throws Exception {
+        RuntimeException ex = new RuntimeException();
+        Function<Integer, Integer> mapper = n -> {
+            throw ex;
+        };
+        Function<Integer, CompletableFuture<Integer>> flatMapper = n -> {
+            throw ex;
+        };
+        Consumer<Integer> onSuccess = n -> {
+            throw ex;
+        };
+        for (boolean done : new boolean[]{true, false}) {
+            CompletableFuture<Integer> f = new CompletableFuture<>();
+            if (done) {
+                f.complete(42);
+            }
+            List<CompletableFuture<Integer>> gs = Arrays.asList(
+                f.mapNow(mapper), f.flatMapNow(flatMapper), f.whenCompleteNow(onSuccess, e -> {
+                }));
+            f.complete(42);
+            for (CompletableFuture<Integer> g : gs) {
+                Throwable failure = g.handle((t, e) -> e).get();
+                assertThat(failure, is(instanceOf(CompletionException.class)));
+                assertThat(failure.getCause(), is(ex));
+            }
+        }
+    }
+
+    @Test
+    public void flatMapNowIfCompleted() throws Exception {
+        CompletableFuture<Integer> inner = CompletableFuture.completedFuture(43);
+        CompletableFuture<Integer> g = CompletableFuture.completedFuture(42).flatMapNow(n -> inner);
+        assertThat(g, is(inner));
+    }
+
+    @Test
+    public void flatMapNowIfIncomplete() throws Exception {
+        CompletableFuture<Integer> f = new CompletableFuture<>();
+        CompletableFuture<Integer> g = f.flatMapNow(n -> CompletableFuture.completedFuture(n + 1));
+
+        assertThat(g.isDone(), is(false));
+        f.complete(42);
+        assertThat(g.get(), is(43));
+    }
+
+    @Test
+    public void whenCompleteNowIfCompleted() throws Exception {
+        CompletableFuture<Integer> f = CompletableFuture.completedFuture(42);
+        AtomicReference<Integer> result = new AtomicReference<>();
+
+        CompletableFuture<Integer> g = f.whenCompleteNow(result::set, e -> fail());
+
+        assertThat(g, is(f));
+        assertThat(result.get(), is(42));
+    }
+
+    @Test
+    public void whenCompleteNowIfExceptionally() throws Exception {
+        Exception ex = new Exception();
+        CompletableFuture<Integer> f = FutureExtensions.exceptionallyFuture(ex);
+        AtomicReference<Throwable> result = new AtomicReference<>();
+
+        CompletableFuture<Integer> g = f.whenCompleteNow(n -> fail(), result::set);
+
+        try {
+            g.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), is(ex));
+        }
+        assertThat(result.get(), is(ex));
+    }
+
+    @Test
+    public void whenCompleteNowIfIncomplete() throws Exception {
+        CompletableFuture<Integer> f = new CompletableFuture<>();
+        AtomicReference<Integer> result = new AtomicReference<>();
+
+        CompletableFuture<Integer> g = f.whenCompleteNow(result::set, e -> fail());
+
+        assertThat(result.get(), is((Integer) null));
+        f.complete(42);
+        assertThat(g.get(), is(42));
+        assertThat(result.get(), is(42));
+    }
+
+
+    // cancellation propagating
+
+    @Test
+    public void whenCompleteCancellableSkipsUpstreamTask() throws Exception {
+        CountDownLatch blocker = new CountDownLatch(1);
+        executor.execute(() -> {
+            try {
+                blocker.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        AtomicInteger ran = new AtomicInteger();
+        CompletableFuture<Integer> upstream = CompletableFuture.supplyAsync(ran::incrementAndGet, executor);
+
+        CompletableFuture<Integer> g = upstream.whenCompleteCancellable(n -> fail(), e -> {
+        });
+        g.cancel(true);
+        blocker.countDown();
+        executor.submit(() -> null).get();
+
+        assertThat(upstream.isCancelled(), is(true));
+        assertThat(ran.get(), is(0));
+    }
+
+    @Test
+    public void whenCompleteAsyncCancellable() throws Exception {
+        CompletableFuture<Integer> f = new CompletableFuture<>();
+        f.whenCompleteAsyncCancellable(n -> fail(), e -> {
+        }).cancel(true);
+        assertThat(f.isCancelled(), is(true));
+
+        CompletableFuture<Integer> g = new CompletableFuture<>();
+        g.whenCompleteAsyncCancellable(n -> fail(), e -> {
+        }, executor).cancel(true);
+        assertThat(g.isCancelled(), is(true));
+    }
+
+    @Test
+    public void whenCompleteCancellableIfCompleted() throws Exception {
+        CompletableFuture<Integer> f = new CompletableFuture<>();
+        CompletableFuture<Integer> g = f.whenCompleteCancellable(n -> {
+        }, e -> fail());
+        f.complete(42);
+        assertThat(g.get(), is(42));
+        assertThat(f.isCancelled(), is(false));
+    }
+
+    @Test
+    public void allOfCancellable() throws Exception {
+        CompletableFuture<Integer> a = new CompletableFuture<>();
+        CompletableFuture<Integer> b = new CompletableFuture<>();
+        CompletableFuture<List<Integer>> all = Arrays.asList(a, b).allOfCancellable();
+
+        b.complete(2);
+        assertThat(all.isDone(), is(false));
+        a.complete(1);
+        assertThat(all.get(), is(Arrays.asList(1, 2)));
+    }
+
+    @Test
+    public void allOfCancellableIfEmpty() throws Exception {
+        CompletableFuture<List<Integer>> all = new ArrayList<CompletableFuture<Integer>>().allOfCancellable();
+        assertThat(all.get(), is(new ArrayList<Integer>()));
+    }
+
+    @Test
+    public void allOfCancellableCancelsSources() throws Exception {
+        CompletableFuture<Integer> a = new CompletableFuture<>();
+        CompletableFuture<Integer> b = new CompletableFuture<>();
+        Arrays.asList(a, b).allOfCancellable().cancel(true);
+
+        assertThat(a.isCancelled(), is(true));
+        assertThat(b.isCancelled(), is(true));
+    }
+
+    @Test
+    public void allOfCancellableCancelsSiblingsOnFailure() throws Exception {
+        CompletableFuture<Integer> a = new CompletableFuture<>();
+        CompletableFuture<Integer> b = new CompletableFuture<>();
+        CompletableFuture<List<Integer>> all = Arrays.asList(a, b).allOfCancellable();
+        Exception ex = new Exception();
+        a.completeExceptionally(ex);
+
+        try {
+            all.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), is(ex));
+        }
+        assertThat(b.isCancelled(), is(true));
+    }
+
+    @Test
+    public void anyOfCancellable() throws Exception {
+        CompletableFuture<Integer> a = new CompletableFuture<>();
+        CompletableFuture<Integer> b = new CompletableFuture<>();
+        CompletableFuture<Integer> any = Arrays.asList(a, b).anyOfCancellable();
+
+        b.complete(2);
+        assertThat(any.get(), is(2));
+        assertThat(a.isCancelled(), is(true));
+        assertThat(b.isCancelled(), is(false));
+    }
+
+    @Test
+    public void anyOfCancellableCancelsSources() throws Exception {
+        CompletableFuture<Integer> a = new CompletableFuture<>();
+        CompletableFuture<Integer> b = new CompletableFuture<>();
+        Arrays.asList(a, b).anyOfCancellable().cancel(true);
+
+        assertThat(a.isCancelled(), is(true));
+        assertThat(b.isCancelled(), is(true));
+    }
+
+
+
+    // deadline aware
+
+    @Test
+    public void withDeadlineExpires() throws Exception {
+        CompletableFuture<Integer> f = new CompletableFuture<>();
+        CompletableFuture<Integer> g = f.withDeadline(Deadline.after(10, TimeUnit.MILLISECONDS));
+
+        try {
+            g.get(1, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertThat(e.getCause() instanceof Deadline.DeadlineExceededException, is(true));
+        }
+        assertThat(f.isDone(), is(false));
+    }
+
+    @Test
+    public void withDeadlineExpiresOnExecutor() throws Exception {
+        CompletableFuture<Integer> f = new CompletableFuture<>();
+        CompletableFuture<Thread> thread = f.withDeadline(Deadline.after(10, TimeUnit.MILLISECONDS), executor)
+            .handle((t, e) -> Thread.currentThread());
+
+        assertThat(thread.get(1, TimeUnit.SECONDS), is(executorThread));
+    }
+
+    @Test
+    public void slowDeadlineCallbackDoesNotDelayOtherDeadlines() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Thread current = Thread.currentThread();
+        try {
+            // the slow callback holds executor, not the timer
+            new CompletableFuture<Integer>().withDeadline(Deadline.after(10, TimeUnit.MILLISECONDS), executor)
+                .handle((t, e) -> {
+                    // expired before registration; nothing to show then, and blocking here would hang
+                    if (Thread.currentThread() == current) {
+                        return null;
+                    }
+                    try {
+                        release.await();
+                    } catch (InterruptedException ignore) {
+                    }
+                    return null;
+                });
+            CompletableFuture<Integer> g = new CompletableFuture<Integer>()
+                .withDeadline(Deadline.after(50, TimeUnit.MILLISECONDS));
+            try {
+                g.get(1, TimeUnit.SECONDS);
+                fail();
+            } catch (ExecutionException e) {
+                assertThat(e.getCause() instanceof Deadline.DeadlineExceededException, is(true));
+            }
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void withDeadlineCompletes() throws Exception {
+        CompletableFuture<Integer> f = new CompletableFuture<>();
+        CompletableFuture<Integer> g = f.withDeadline(Deadline.after(1, TimeUnit.MINUTES));
+
+        f.complete(42);
+        assertThat(g.get(), is(42));
+    }
+
+    @Test
+    public void whenCompleteSkipsSuccessAfterDeadline() throws Exception {
+        Deadline deadline = Deadline.after(1, TimeUnit.MILLISECONDS);
+        Thread.sleep(5);
+        AtomicReference<Throwable> result = new AtomicReference<>();
+
+        CompletableFuture<Integer> g = CompletableFuture.completedFuture(42)
+            .whenComplete(n -> fail(), result::set, deadline);
+
+        assertThat(g.isCompletedExceptionally(), is(true));
+        assertThat(result.get() instanceof Deadline.DeadlineExceededException, is(true));
+    }
+
+    @Test
+    public void whenCompleteAsyncSkipsSuccessAfterDeadline() throws Exception {
+        CountDownLatch blocker = new CountDownLatch(1);
+        executor.execute(() -> {
+            try {
+                blocker.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        AtomicReference<Throwable> result = new AtomicReference<>();
+        CompletableFuture<Integer> g = CompletableFuture.completedFuture(42)
+            .whenCompleteAsync(n -> fail(), result::set, executor, Deadline.after(10, TimeUnit.MILLISECONDS));
+
+        Thread.sleep(20);
+        blocker.countDown();
+        try {
+            g.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertThat(e.getCause() instanceof Deadline.DeadlineExceededException, is(true));
+        }
+        assertThat(result.get() instanceof Deadline.DeadlineExceededException, is(true));
+    }
+
+    @Test
+    public void retry() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        Supplier<CompletableFuture<Integer>> task = () -> attempts.incrementAndGet() < 3
+            ? FutureExtensions.<Integer>exceptionallyFuture(new Exception())
+            : CompletableFuture.completedFuture(42);
+
+        assertThat(task.retry(5, Deadline.after(1, TimeUnit.MINUTES)).get(), is(42));
+        assertThat(attempts.get(), is(3));
+    }
+
+    @Test
+    public void retryGivesUpAfterMaxAttempts() throws Exception {
+        Exception ex = new Exception();
+        AtomicInteger attempts = new AtomicInteger();
+        Supplier<CompletableFuture<Integer>> task = () -> {
+            attempts.incrementAndGet();
+            return FutureExtensions.exceptionallyFuture(ex);
+        };
+
+        try {
+            task.retry(3, Deadline.after(1, TimeUnit.MINUTES)).get();
+            fail();
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), is(ex));
+        }
+        assertThat(attempts.get(), is(3));
+    }
+
+    @Test
+    public void retryManySynchronousFailures() throws Exception {
+        Exception ex = new Exception();
+        AtomicInteger attempts = new AtomicInteger();
+        Supplier<CompletableFuture<Integer>> task = () -> {
+            attempts.incrementAndGet();
+            return FutureExtensions.exceptionallyFuture(ex);
+        };
+
+        try {
+            task.retry(50000, Deadline.after(1, TimeUnit.MINUTES)).get(10, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), is(ex));
+        }
+        assertThat(attempts.get(), is(50000));
+    }
+
+    @Test
+    public void retryStopsAtDeadline() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        Supplier<CompletableFuture<Integer>> task = () -> {
+            attempts.incrementAndGet();
+            return new CompletableFuture<>();
+        };
+
+        try {
+            task.retry(3, Deadline.after(10, TimeUnit.MILLISECONDS)).get(1, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertThat(e.getCause() instanceof Deadline.DeadlineExceededException, is(true));
+        }
+        assertThat(attempts.get(), is(1));
+    }
+
+    @Test
+    public void allOfCancellableWithDeadline() throws Exception {
+        CompletableFuture<Integer> a = CompletableFuture.completedFuture(1);
+        CompletableFuture<Integer> b = new CompletableFuture<>();
+
+        try {
+            Arrays.asList(a, b).allOfCancellable(Deadline.after(10, TimeUnit.MILLISECONDS)).get(1, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertThat(e.getCause() instanceof Deadline.DeadlineExceededException, is(true));
+        }
+        assertThat(b.isCancelled(), is(true));
+    }
+
+
+    @Test
+    public void collectWithinAllComplete() throws Exception {
+        Exception ex = new Exception();
+        CompletableFuture<Integer> a = new CompletableFuture<>();
+        CompletableFuture<Integer> b = CompletableFuture.completedFuture(2);
+        CompletableFuture<Integer> c = FutureExtensions.exceptionallyFuture(ex);
+
+        CompletableFuture<PartialResult<Integer>> f = Arrays.asList(a, b, c).collectWithin(1, TimeUnit.MINUTES);
+        assertThat(f.isDone(), is(false));
+        a.complete(1);
+
+        PartialResult<Integer> r = f.get();
+        assertThat(r.values(), is(Arrays.asList(1, 2)));
+        assertThat(r.failures(), is(Arrays.<Throwable>asList(ex)));
+        assertThat(r.pending().isEmpty(), is(true));
+        assertThat(r.isComplete(), is(true));
+    }
+
+    @Test
+    public void collectWithinTimeout() throws Exception {
+        CompletableFuture<Integer> a = CompletableFuture.completedFuture(1);
+        CompletableFuture<Integer> b = new CompletableFuture<>();
+        CompletableFuture<Integer> c = a.thenApply(n -> {
+            throw new IllegalStateException();
+        });
+
+        PartialResult<Integer> r = Arrays.asList(a, b, c).collectWithin(10, TimeUnit.MILLISECONDS)
+            .get(1, TimeUnit.SECONDS);
+        assertThat(r.values(), is(Arrays.asList(1)));
+        assertThat(r.failures().size(), is(1));
+        assertThat(r.failures().get(0) instanceof IllegalStateException, is(true));
+        assertThat(r.pending(), is(Arrays.asList(b)));
+        assertThat(r.isComplete(), is(false));
+        assertThat(b.isDone(), is(false));
+    }
+
+    @Test
+    public void collectWithinTimeoutOnExecutor() throws Exception {
+        CompletableFuture<Integer> a = new CompletableFuture<>();
+        CompletableFuture<Thread> thread = Arrays.asList(a).collectWithin(10, TimeUnit.MILLISECONDS, executor)
+            .thenApply(r -> Thread.currentThread());
+
+        assertThat(thread.get(1, TimeUnit.SECONDS), is(executorThread));
+    }
+
+    @Test
+    public void collectWithinEmpty() throws Exception {
+        PartialResult<Integer> r = new ArrayList<CompletableFuture<Integer>>().collectWithin(1, TimeUnit.MINUTES).get();
+        assertThat(r.isComplete(), is(true));
+        assertThat(r.values().isEmpty(), is(true));
+    }
+
+
+
+    // reduce as completed
+
+    @Test
+    public void reduceAsync() throws Exception {
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            futures.add(new CompletableFuture<>());
+        }
+        CompletableFuture<String> f = futures.reduceAsync("", (a, b) -> a.length() >= b.length() ? a : b);
+        String[] values = {"a", "ccc", "bb", "", "dd"};
+        for (int i = 0; i < 5; i++) {
+            assertThat(f.isDone(), is(false));
+            futures.get(i).complete(values[i]);
+        }
+        assertThat(f.get(), is("ccc"));
+    }
+
+    @Test
+    public void reduceAsyncEmpty() throws Exception {
+        assertThat(new ArrayList<CompletableFuture<Integer>>().reduceAsync(0, Integer::sum).get(), is(0));
+    }
+
+    @Test
+    public void reduceAsyncFailure() throws Exception {
+        Exception ex = new Exception();
+        CompletableFuture<Integer> a = new CompletableFuture<>();
+        CompletableFuture<Integer> b = FutureExtensions.exceptionallyFuture(ex);
+        try {
+            Arrays.asList(a, b).reduceAsync(0, Integer::sum).get();
+            fail();
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), is(ex));
+        }
+    }
+
+    @Test
+    public void reduceAsyncToLong() throws Exception {
+        List<CompletableFuture<Long>> futures = new ArrayList<>();
+        for (long i = 1; i <= 10000; i++) {
+            long n = i;
+            futures.add(CompletableFuture.supplyAsync(() -> n, executor));
+        }
+        assertThat(futures.reduceAsyncToLong(0, Long::sum).get(), is(10000L * 10001 / 2));
+    }
+
+    @Test
+    public void reduceAsyncToDouble() throws Exception {
+        CompletableFuture<Double> a = new CompletableFuture<>();
+        CompletableFuture<Double> b = CompletableFuture.completedFuture(2.5);
+        CompletableFuture<Double> f = Arrays.asList(a, b).reduceAsyncToDouble(Double.NEGATIVE_INFINITY, Math::max);
+
+        assertThat(f.isDone(), is(false));
+        a.complete(1.5);
+        assertThat(f.get(), is(2.5));
+    }
+
+
+
+    // completion order
+
+    @Test
+    public void streamInCompletionOrder() throws Exception {
+        CompletableFuture<Integer> a = new CompletableFuture<>();
+        CompletableFuture<Integer> b = CompletableFuture.completedFuture(2);
+        Stream<CompletableFuture<Integer>> stream = Arrays.asList(a, b).streamInCompletionOrder();
+        executor.execute(() -> a.complete(1));
+
+        List<Integer> values = new ArrayList<>();
+        stream.forEach(f -> values.add(f.join()));
+        assertThat(values, is(Arrays.asList(2, 1)));
+    }
+
+    @Test
+    public void inCompletionOrderWithAction() throws Exception {
+        CompletableFuture<Integer> a = new CompletableFuture<>();
+        CompletableFuture<Integer> b = new CompletableFuture<>();
+        CompletableFuture<Integer> c = new CompletableFuture<>();
+        List<Integer> values = new ArrayList<>();
+
+        CompletableFuture<Void> done = Arrays.asList(a, b, c).inCompletionOrder(f -> values.add(f.join()));
+        c.complete(3);
+        a.complete(1);
+        assertThat(done.isDone(), is(false));
+        b.complete(2);
+
+        done.get();
+        assertThat(values, is(Arrays.asList(3, 1, 2)));
+    }
+
+    @Test
+    public void inCompletionOrderWithActionIsSerial() throws Exception {
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            futures.add(new CompletableFuture<>());
+        }
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger overlaps = new AtomicInteger();
+        long[] sum = new long[1];
+
+        CompletableFuture<Void> done = futures.inCompletionOrder(f -> {
+            if (running.incrementAndGet() != 1) {
+                overlaps.incrementAndGet();
+            }
+            sum[0] += f.join();
+            running.decrementAndGet();
+        });
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            int offset = t;
+            threads[t] = new Thread(() -> {
+                for (int i = offset; i < futures.size(); i += threads.length) {
+                    futures.get(i).complete(i);
+                }
+            });
+            threads[t].start();
+        }
+
+        done.get(10, TimeUnit.SECONDS);
+        assertThat(overlaps.get(), is(0));
+        assertThat(sum[0], is(9999L * 10000 / 2));
+    }
+
+    @Test
+    public void inCompletionOrderWithActionFailure() throws Exception {
+        RuntimeException ex = new RuntimeException();
+        CompletableFuture<Integer> a = CompletableFuture.completedFuture(1);
+        CompletableFuture<Integer> b = CompletableFuture.completedFuture(2);
+        AtomicInteger calls = new AtomicInteger();
+
+        CompletableFuture<Void> done = Arrays.asList(a, b).inCompletionOrder(f -> {
+            calls.incrementAndGet();
+            throw ex;
+        });
+        try {
+            done.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), is(ex));
+        }
+        assertThat(calls.get(), is(1));
+    }
+
 }
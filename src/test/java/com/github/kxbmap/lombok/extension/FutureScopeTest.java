@@ -0,0 +1,142 @@
+/*
+ * Copyright 2014 Tsukasa Kitachi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.kxbmap.lombok.extension;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class FutureScopeTest {
+
+    private static ExecutorService executor;
+
+    @BeforeClass
+    public static void setupExecutor() throws Exception {
+        executor = Executors.newFixedThreadPool(2);
+    }
+
+    @AfterClass
+    public static void shutdownExecutor() throws Exception {
+        executor.shutdown();
+        executor = null;
+    }
+
+    @Test
+    public void joinInForkOrder() throws Exception {
+        try (FutureScope<Integer> scope = new FutureScope<>(executor)) {
+            CompletableFuture<Integer> slow = new CompletableFuture<>();
+            scope.forkAsync(() -> slow);
+            scope.fork(() -> 2);
+            scope.forkAsync(() -> CompletableFuture.completedFuture(3));
+
+            CompletableFuture<List<Integer>> all = scope.join();
+            assertThat(all.isDone(), is(false));
+            slow.complete(1);
+            assertThat(all.get(), is(Arrays.asList(1, 2, 3)));
+        }
+    }
+
+    @Test
+    public void firstFailureCancelsSiblings() throws Exception {
+        try (FutureScope<Integer> scope = new FutureScope<>(executor)) {
+            CompletableFuture<Integer> a = scope.forkAsync(CompletableFuture::new);
+            CompletableFuture<Integer> b = scope.forkAsync(CompletableFuture::new);
+            CompletableFuture<List<Integer>> all = scope.join();
+
+            Exception ex = new Exception();
+            b.completeExceptionally(ex);
+
+            assertThat(a.isCancelled(), is(true));
+            try {
+                all.get();
+                fail();
+            } catch (ExecutionException e) {
+                assertThat(e.getCause(), is(ex));
+            }
+        }
+    }
+
+    @Test
+    public void forkAfterFailureIsNotStarted() throws Exception {
+        try (FutureScope<Integer> scope = new FutureScope<>(executor)) {
+            RuntimeException ex = new RuntimeException();
+            scope.forkAsync(() -> {
+                throw ex;
+            });
+            AtomicInteger ran = new AtomicInteger();
+            CompletableFuture<Integer> f = scope.fork(ran::incrementAndGet);
+
+            assertThat(f.isCancelled(), is(true));
+            assertThat(ran.get(), is(0));
+            try {
+                scope.join().get();
+                fail();
+            } catch (ExecutionException e) {
+                assertThat(e.getCause(), is(ex));
+            }
+        }
+    }
+
+    @Test
+    public void closeCancelsOutstanding() throws Exception {
+        CompletableFuture<Integer> a;
+        CompletableFuture<Integer> b;
+        try (FutureScope<Integer> scope = new FutureScope<>(executor)) {
+            a = scope.forkAsync(() -> CompletableFuture.completedFuture(1));
+            b = scope.forkAsync(CompletableFuture::new);
+        }
+        assertThat(a.isCancelled(), is(false));
+        assertThat(b.isCancelled(), is(true));
+    }
+
+    @Test
+    public void cancelJoinCancelsOutstanding() throws Exception {
+        try (FutureScope<Integer> scope = new FutureScope<>(executor)) {
+            CompletableFuture<Integer> a = scope.forkAsync(CompletableFuture::new);
+            scope.join().cancel(true);
+            assertThat(a.isCancelled(), is(true));
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void forkAfterJoin() throws Exception {
+        try (FutureScope<Integer> scope = new FutureScope<>(executor)) {
+            scope.join();
+            scope.fork(() -> 1);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void forkAfterClose() throws Exception {
+        FutureScope<Integer> scope = new FutureScope<>(executor);
+        scope.close();
+        scope.fork(() -> 1);
+    }
+
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2014 Tsukasa Kitachi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.kxbmap.lombok.extension;
+
+import lombok.experimental.ExtensionMethod;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+@ExtensionMethod(FutureExtensions.class)
+public class KeyedSequentialExecutorTest {
+
+    private static ExecutorService executor;
+
+    @BeforeClass
+    public static void setupExecutor() throws Exception {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterClass
+    public static void shutdownExecutor() throws Exception {
+        executor.shutdown();
+        executor = null;
+    }
+
+    @Test
+    public void sameKeyRunsInOrder() throws Exception {
+        KeyedSequentialExecutor<Integer> keyed = new KeyedSequentialExecutor<>(executor, 4);
+        int keys = 4;
+        int tasks = 1000;
+        int[] last = new int[keys];
+        AtomicInteger[] running = new AtomicInteger[keys];
+        for (int k = 0; k < keys; k++) {
+            last[k] = -1;
+            running[k] = new AtomicInteger();
+        }
+        List<String> errors = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(keys * tasks);
+
+        for (int i = 0; i < tasks; i++) {
+            for (int k = 0; k < keys; k++) {
+                int key = k;
+                int n = i;
+                keyed.execute(key, () -> {
+                    if (running[key].incrementAndGet() != 1 || last[key] != n - 1) {
+                        synchronized (errors) {
+                            errors.add(key + ": " + last[key] + " -> " + n);
+                        }
+                    }
+                    last[key] = n;
+                    running[key].decrementAndGet();
+                    done.countDown();
+                });
+            }
+        }
+
+        assertThat(done.await(10, TimeUnit.SECONDS), is(true));
+        assertThat(errors, is(new ArrayList<String>()));
+    }
+
+    @Test
+    public void differentKeysRunInParallel() throws Exception {
+        KeyedSequentialExecutor<String> keyed = new KeyedSequentialExecutor<>(executor);
+        CountDownLatch latch = new CountDownLatch(1);
+        CompletableFuture<Void> a = new CompletableFuture<>();
+        CompletableFuture<Void> b = new CompletableFuture<>();
+
+        keyed.execute("a", () -> {
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        keyed.execute("a", () -> a.complete(null));
+        keyed.execute("b", () -> b.complete(null));
+
+        b.get(1, TimeUnit.SECONDS);
+        assertThat(a.isDone(), is(false));
+        latch.countDown();
+        a.get(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void idleKeysAreRemoved() throws Exception {
+        KeyedSequentialExecutor<Integer> keyed = new KeyedSequentialExecutor<>(executor);
+        CountDownLatch latch = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(100);
+
+        for (int k = 0; k < 100; k++) {
+            keyed.execute(k, () -> {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                done.countDown();
+            });
+        }
+        assertThat(keyed.activeKeys(), is(100));
+
+        latch.countDown();
+        assertThat(done.await(1, TimeUnit.SECONDS), is(true));
+        for (int i = 0; i < 100 && keyed.activeKeys() > 0; i++) {
+            Thread.sleep(10);
+        }
+        assertThat(keyed.activeKeys(), is(0));
+    }
+
+    @Test
+    public void rejectedFirstSchedulingIsRolledBack() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        KeyedSequentialExecutor<String> keyed = new KeyedSequentialExecutor<>(r -> {
+            if (calls.getAndIncrement() == 0) {
+                throw new RejectedExecutionException();
+            }
+            r.run();
+        });
+        List<Integer> order = new ArrayList<>();
+
+        try {
+            keyed.execute("a", () -> order.add(0));
+            fail();
+        } catch (RejectedExecutionException expected) {
+        }
+        assertThat(keyed.activeKeys(), is(0));
+
+        keyed.execute("a", () -> order.add(1));
+        assertThat(order, is(Arrays.asList(1)));
+        assertThat(keyed.activeKeys(), is(0));
+    }
+
+    @Test
+    public void rejectedReschedulingKeepsRunning() throws Exception {
+        List<Runnable> scheduled = new ArrayList<>();
+        KeyedSequentialExecutor<String> keyed = new KeyedSequentialExecutor<>(r -> {
+            if (!scheduled.isEmpty()) {
+                throw new RejectedExecutionException();
+            }
+            scheduled.add(r);
+        }, 1);
+        List<Integer> order = new ArrayList<>();
+
+        for (int i = 0; i < 3; i++) {
+            int n = i;
+            keyed.execute("a", () -> order.add(n));
+        }
+        scheduled.get(0).run();
+
+        assertThat(order, is(Arrays.asList(0, 1, 2)));
+        assertThat(keyed.activeKeys(), is(0));
+    }
+
+    @Test
+    public void whenCompleteAsyncWithKey() throws Exception {
+        KeyedSequentialExecutor<String> keyed = new KeyedSequentialExecutor<>(executor);
+        List<Integer> order = new ArrayList<>();
+        CompletableFuture<Integer> f = new CompletableFuture<>();
+        CompletableFuture<Integer> g = new CompletableFuture<>();
+
+        CompletableFuture<Integer> f2 = f.whenCompleteAsync("account", order::add, e -> fail(), keyed);
+        CompletableFuture<Integer> g2 = g.whenCompleteAsync("account", order::add, e -> fail(), keyed);
+        f.complete(1);
+        f2.get();
+        g.complete(2);
+        g2.get();
+
+        assertThat(order.size(), is(2));
+        assertThat(order.get(0), is(1));
+        assertThat(order.get(1), is(2));
+    }
+
+}
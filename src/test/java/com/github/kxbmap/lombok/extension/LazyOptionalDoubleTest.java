@@ -0,0 +1,55 @@
+/*
+ * Copyright 2014 Tsukasa Kitachi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.kxbmap.lombok.extension;
+
+import lombok.experimental.ExtensionMethod;
+import org.junit.Test;
+
+import java.util.Optional;
+import java.util.OptionalDouble;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+@ExtensionMethod(OptionalDoubleExtensions.class)
+public class LazyOptionalDoubleTest {
+
+    @Test
+    public void lazyOperations() {
+        AtomicInteger calls = new AtomicInteger();
+        Supplier<OptionalDouble> supplier = () -> {
+            calls.incrementAndGet();
+            return OptionalDouble.of(21);
+        };
+        LazyOptionalDouble lazy = supplier.lazily();
+        LazyOptionalDouble doubled = lazy.map(n -> n * 2);
+        LazyOptionalDouble filtered = lazy.filter(n -> n > 100);
+        LazyOptionalDouble flatMapped = lazy.flatMap(n -> OptionalDouble.of(-n));
+        LazyOptional<String> string = lazy.mapToObj(n -> String.valueOf((int) n));
+
+        assertThat(calls.get(), is(0));
+        assertThat(doubled.get(), is(OptionalDouble.of(42.0)));
+        assertThat(filtered.isAbsent(), is(true));
+        assertThat(flatMapped.fold(n -> n, () -> 0), is(-21.0));
+        assertThat(string.get(), is(Optional.of("21")));
+        assertThat(calls.get(), is(1));
+        assertThat(lazy.toString(), is("LazyOptionalDouble[21.0]"));
+    }
+
+}
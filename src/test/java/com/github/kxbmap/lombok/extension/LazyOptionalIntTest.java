@@ -0,0 +1,55 @@
+/*
+ * Copyright 2014 Tsukasa Kitachi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.kxbmap.lombok.extension;
+
+import lombok.experimental.ExtensionMethod;
+import org.junit.Test;
+
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+@ExtensionMethod(OptionalIntExtensions.class)
+public class LazyOptionalIntTest {
+
+    @Test
+    public void lazyOperations() {
+        AtomicInteger calls = new AtomicInteger();
+        Supplier<OptionalInt> supplier = () -> {
+            calls.incrementAndGet();
+            return OptionalInt.of(21);
+        };
+        LazyOptionalInt lazy = supplier.lazily();
+        LazyOptionalInt doubled = lazy.map(n -> n * 2);
+        LazyOptionalInt filtered = lazy.filter(n -> n > 100);
+        LazyOptionalInt flatMapped = lazy.flatMap(n -> OptionalInt.of(-n));
+        LazyOptional<String> string = lazy.mapToObj(String::valueOf);
+
+        assertThat(calls.get(), is(0));
+        assertThat(doubled.get(), is(OptionalInt.of(42)));
+        assertThat(filtered.isAbsent(), is(true));
+        assertThat(flatMapped.fold(n -> n, () -> 0), is(-21));
+        assertThat(string.get(), is(Optional.of("21")));
+        assertThat(calls.get(), is(1));
+        assertThat(lazy.toString(), is("LazyOptionalInt[21]"));
+    }
+
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2014 Tsukasa Kitachi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.kxbmap.lombok.extension;
+
+import lombok.experimental.ExtensionMethod;
+import org.junit.Test;
+
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+@ExtensionMethod(OptionalLongExtensions.class)
+public class LazyOptionalLongTest {
+
+    @Test
+    public void lazyOperations() {
+        AtomicInteger calls = new AtomicInteger();
+        Supplier<OptionalLong> supplier = () -> {
+            calls.incrementAndGet();
+            return OptionalLong.of(21);
+        };
+        LazyOptionalLong lazy = supplier.lazily();
+        LazyOptionalLong doubled = lazy.map(n -> n * 2);
+        LazyOptionalLong filtered = lazy.filter(n -> n > 100);
+        LazyOptionalLong flatMapped = lazy.flatMap(n -> OptionalLong.of(-n));
+        LazyOptional<String> string = lazy.mapToObj(String::valueOf);
+
+        assertThat(calls.get(), is(0));
+        assertThat(doubled.get(), is(OptionalLong.of(42)));
+        assertThat(filtered.isAbsent(), is(true));
+        assertThat(flatMapped.fold(n -> n, () -> 0), is(-21L));
+        assertThat(string.get(), is(Optional.of("21")));
+        assertThat(calls.get(), is(1));
+        assertThat(lazy.toString(), is("LazyOptionalLong[21]"));
+    }
+
+}
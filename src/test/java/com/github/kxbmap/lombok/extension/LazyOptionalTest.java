@@ -0,0 +1,121 @@
+/*
+ * Copyright 2014 Tsukasa Kitachi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.kxbmap.lombok.extension;
+
+import lombok.experimental.ExtensionMethod;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+@ExtensionMethod(OptionalExtensions.class)
+public class LazyOptionalTest {
+
+    @Test
+    public void evaluatesOnce() {
+        AtomicInteger calls = new AtomicInteger();
+        Supplier<Optional<String>> supplier = () -> {
+            calls.incrementAndGet();
+            return Optional.of("a");
+        };
+        LazyOptional<String> lazy = supplier.lazily();
+
+        assertThat(calls.get(), is(0));
+        assertThat(lazy.isEvaluated(), is(false));
+        assertThat(lazy.toString(), is("LazyOptional.unevaluated"));
+        assertThat(lazy.get(), is(Optional.of("a")));
+        assertThat(lazy.isPresent(), is(true));
+        assertThat(lazy.fold(String::length, () -> 0), is(1));
+        assertThat(calls.get(), is(1));
+        assertThat(lazy.toString(), is("LazyOptional[a]"));
+    }
+
+    @Test
+    public void mapIsLazy() {
+        AtomicInteger calls = new AtomicInteger();
+        Supplier<Optional<String>> supplier = () -> {
+            calls.incrementAndGet();
+            return Optional.of("abc");
+        };
+        LazyOptional<String> lazy = supplier.lazily();
+        LazyOptional<Integer> mapped = lazy.map(String::length).filter(n -> n > 1);
+        LazyOptional<Integer> flatMapped = lazy.flatMap(s -> Optional.<Integer>empty());
+
+        assertThat(calls.get(), is(0));
+        assertThat(mapped.get(), is(Optional.of(3)));
+        assertThat(flatMapped.isAbsent(), is(true));
+        assertThat(calls.get(), is(1));
+    }
+
+    @Test
+    public void retriesAfterFailure() {
+        AtomicInteger calls = new AtomicInteger();
+        Supplier<Optional<String>> supplier = () -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new IllegalStateException();
+            }
+            return Optional.empty();
+        };
+        LazyOptional<String> lazy = supplier.lazily();
+        try {
+            lazy.get();
+            fail();
+        } catch (IllegalStateException e) {
+            assertThat(lazy.isEvaluated(), is(false));
+        }
+        assertThat(lazy.isAbsent(), is(true));
+        assertThat(calls.get(), is(2));
+    }
+
+    @Test
+    public void concurrentAccessEvaluatesOnce() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        Supplier<Optional<Integer>> supplier = () -> Optional.of(calls.incrementAndGet());
+        LazyOptional<Integer> lazy = supplier.lazily();
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Optional<Integer>>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return lazy.get();
+                }));
+            }
+            start.countDown();
+            for (Future<Optional<Integer>> result : results) {
+                assertThat(result.get(), is(Optional.of(1)));
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertThat(calls.get(), is(1));
+    }
+
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2014 Tsukasa Kitachi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.kxbmap.lombok.extension;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.OptionalLong;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class MappedOptionalLongColumnTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void writeAndReopen() throws Exception {
+        Path path = folder.newFile().toPath();
+        // 64-byte chunks so values and bitmap span many chunks
+        try (MappedOptionalLongColumn column = MappedOptionalLongColumn.create(path, 1000, 6)) {
+            assertThat(column.length(), is(1000L));
+            assertThat(column.countPresent(), is(0L));
+            for (long i = 0; i < 1000; i += 3) {
+                column.set(i, i * 10);
+            }
+            column.set(999, OptionalLong.of(-1));
+            column.set(3, OptionalLong.empty());
+            column.force();
+        }
+
+        try (MappedOptionalLongColumn column = MappedOptionalLongColumn.open(path, 6)) {
+            assertThat(column.length(), is(1000L));
+            assertThat(column.get(0), is(OptionalLong.of(0)));
+            assertThat(column.get(3), is(OptionalLong.empty()));
+            assertThat(column.get(6), is(OptionalLong.of(60)));
+            assertThat(column.isAbsent(7), is(true));
+            assertThat(column.getAsLong(999), is(-1L));
+            assertThat(column.countPresent(), is(333L));
+            // multiples of 3 below 999 except 3, then -1 at 999
+            assertThat(column.sum(), is(10L * 3 * 332 * 333 / 2 - 30 - 1));
+        }
+    }
+
+    @Test
+    public void openWithDefaultChunks() throws Exception {
+        Path path = folder.newFile().toPath();
+        try (MappedOptionalLongColumn column = MappedOptionalLongColumn.create(path, 3)) {
+            column.set(1, 42);
+        }
+        try (MappedOptionalLongColumn column = MappedOptionalLongColumn.open(path)) {
+            assertThat(column.get(1), is(OptionalLong.of(42)));
+        }
+    }
+
+    @Test
+    public void mapAndFold() throws Exception {
+        try (MappedOptionalLongColumn column = MappedOptionalLongColumn.create(folder.newFile().toPath(), 2)) {
+            column.set(0, 5);
+            assertThat(column.map(0, n -> n + 1), is(OptionalLong.of(6)));
+            assertThat(column.map(1, n -> n + 1), is(OptionalLong.empty()));
+            assertThat(column.fold(0, n -> n * 2, () -> -1), is(10L));
+            assertThat(column.fold(1, n -> n * 2, () -> -1), is(-1L));
+            assertThat(column.reducePresent(Long.MIN_VALUE, Math::max), is(5L));
+        }
+    }
+
+    @Test
+    public void empty() throws Exception {
+        try (MappedOptionalLongColumn column = MappedOptionalLongColumn.create(folder.newFile().toPath(), 0)) {
+            assertThat(column.sum(), is(0L));
+        }
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void getAsLongIfAbsent() throws Exception {
+        try (MappedOptionalLongColumn column = MappedOptionalLongColumn.create(folder.newFile().toPath(), 1)) {
+            column.getAsLong(0);
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void outOfBounds() throws Exception {
+        try (MappedOptionalLongColumn column = MappedOptionalLongColumn.create(folder.newFile().toPath(), 1)) {
+            column.get(1);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void openNotAColumn() throws Exception {
+        Path path = folder.newFile().toPath();
+        Files.write(path, new byte[]{1, 2, 3});
+        MappedOptionalLongColumn.open(path);
+    }
+
+    @Test
+    public void fileLayoutIsLittleEndian() throws Exception {
+        Path path = folder.newFile().toPath();
+        try (MappedOptionalLongColumn column = MappedOptionalLongColumn.create(path, 2)) {
+            column.set(1, 0x0102030405060708L);
+            column.force();
+        }
+        ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(path));
+        assertThat(buf.limit(), is(16 + 2 * 8 + 8));
+        assertThat(new String(Arrays.copyOf(buf.array(), 4), StandardCharsets.US_ASCII), is("OPTL"));
+        buf.order(ByteOrder.LITTLE_ENDIAN);
+        assertThat(buf.getInt(4), is(MappedOptionalLongColumn.VERSION));
+        assertThat(buf.getLong(8), is(2L));
+        assertThat(buf.get(24), is((byte) 0x08));
+        assertThat(buf.getLong(24), is(0x0102030405060708L));
+        assertThat(buf.getLong(32), is(2L));
+    }
+
+    @Test
+    public void openUnsupportedVersion() throws Exception {
+        Path path = folder.newFile().toPath();
+        MappedOptionalLongColumn.create(path, 1).close();
+        byte[] bytes = Files.readAllBytes(path);
+        bytes[4] = 2;
+        Files.write(path, bytes);
+        try {
+            MappedOptionalLongColumn.open(path);
+            fail();
+        } catch (IOException e) {
+            assertThat(e.getMessage().startsWith("unsupported column version 2"), is(true));
+        }
+    }
+
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2014 Tsukasa Kitachi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.kxbmap.lombok.extension;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class MpscArrayQueueTest {
+
+    @Test
+    public void capacityRoundedUpToPowerOfTwo() {
+        assertThat(new MpscArrayQueue<Integer>(1).capacity(), is(1));
+        assertThat(new MpscArrayQueue<Integer>(5).capacity(), is(8));
+        assertThat(new MpscArrayQueue<Integer>(8).capacity(), is(8));
+    }
+
+    @Test
+    public void offerAndPoll() {
+        MpscArrayQueue<Integer> q = new MpscArrayQueue<>(2);
+        assertThat(q.isEmpty(), is(true));
+        assertThat(q.poll(), is(nullValue()));
+
+        assertThat(q.offer(1), is(true));
+        assertThat(q.offer(2), is(true));
+        assertThat(q.offer(3), is(false));
+        assertThat(q.size(), is(2));
+
+        assertThat(q.poll(), is(1));
+        assertThat(q.offer(3), is(true));
+        assertThat(q.poll(), is(2));
+        assertThat(q.poll(), is(3));
+        assertThat(q.poll(), is(nullValue()));
+        assertThat(q.isEmpty(), is(true));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void offerNull() {
+        new MpscArrayQueue<Integer>(2).offer(null);
+    }
+
+    @Test
+    public void concurrentProducers() throws Exception {
+        MpscArrayQueue<Long> q = new MpscArrayQueue<>(64);
+        int producers = 4;
+        long perProducer = 10000;
+
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            threads[p] = new Thread(() -> {
+                for (long i = 1; i <= perProducer; i++) {
+                    while (!q.offer(i)) {
+                        Thread.yield();
+                    }
+                }
+            });
+            threads[p].start();
+        }
+
+        AtomicLong sum = new AtomicLong();
+        for (long n = 0; n < producers * perProducer; ) {
+            Long e = q.poll();
+            if (e != null) {
+                sum.addAndGet(e);
+                n++;
+            }
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+
+        assertThat(sum.get(), is(producers * perProducer * (perProducer + 1) / 2));
+        assertThat(q.isEmpty(), is(true));
+    }
+
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright 2014 Tsukasa Kitachi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.kxbmap.lombok.extension;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.OptionalDouble;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class OptionalCodecTest {
+
+    private static final OptionalInt[] INTS = {
+        OptionalInt.of(0), OptionalInt.empty(), OptionalInt.of(-1), OptionalInt.of(Integer.MIN_VALUE),
+        OptionalInt.of(Integer.MAX_VALUE), OptionalInt.empty(), OptionalInt.of(63), OptionalInt.of(64),
+        OptionalInt.of(-65)
+    };
+
+    private static final OptionalLong[] LONGS = {
+        OptionalLong.of(Long.MIN_VALUE), OptionalLong.of(Long.MAX_VALUE), OptionalLong.empty(), OptionalLong.of(1)
+    };
+
+    private static final OptionalDouble[] DOUBLES = {
+        OptionalDouble.of(Double.NaN), OptionalDouble.empty(), OptionalDouble.of(-0.0), OptionalDouble.of(1e300)
+    };
+
+    @Test
+    public void byteBufferRoundTrip() {
+        ByteBuffer buf = ByteBuffer.allocate(256);
+        for (OptionalInt opt : INTS) {
+            OptionalCodec.write(buf, opt);
+        }
+        for (OptionalLong opt : LONGS) {
+            OptionalCodec.write(buf, opt);
+        }
+        for (OptionalDouble opt : DOUBLES) {
+            OptionalCodec.write(buf, opt);
+        }
+        OptionalCodec.write(buf, Optional.of("ユニコード"), OptionalCodec.UTF8);
+        OptionalCodec.write(buf, Optional.<String>empty(), OptionalCodec.UTF8);
+        buf.flip();
+
+        for (OptionalInt opt : INTS) {
+            assertThat(OptionalCodec.readInt(buf), is(opt));
+        }
+        for (OptionalLong opt : LONGS) {
+            assertThat(OptionalCodec.readLong(buf), is(opt));
+        }
+        for (OptionalDouble opt : DOUBLES) {
+            assertThat(OptionalCodec.readDouble(buf), is(opt));
+        }
+        assertThat(OptionalCodec.read(buf, OptionalCodec.UTF8), is(Optional.of("ユニコード")));
+        assertThat(OptionalCodec.read(buf, OptionalCodec.UTF8), is(Optional.<String>empty()));
+        assertThat(buf.hasRemaining(), is(false));
+    }
+
+    @Test
+    public void smallValuesAreCompact() {
+        ByteBuffer buf = ByteBuffer.allocate(16);
+        OptionalCodec.write(buf, OptionalInt.of(-64));
+        OptionalCodec.write(buf, OptionalLong.of(63));
+        OptionalCodec.write(buf, OptionalInt.empty());
+        assertThat(buf.position(), is(5));
+    }
+
+    @Test
+    public void byteBufferArrays() {
+        ByteBuffer buf = ByteBuffer.allocate(256);
+        OptionalCodec.write(buf, INTS);
+        OptionalCodec.write(buf, LONGS);
+        OptionalCodec.write(buf, DOUBLES);
+        OptionalCodec.write(buf, new OptionalInt[0]);
+        buf.flip();
+
+        assertThat(OptionalCodec.readIntArray(buf), is(INTS));
+        assertThat(OptionalCodec.readLongArray(buf), is(LONGS));
+        assertThat(OptionalCodec.readDoubleArray(buf), is(DOUBLES));
+        assertThat(OptionalCodec.readIntArray(buf), is(new OptionalInt[0]));
+        assertThat(buf.hasRemaining(), is(false));
+    }
+
+    @Test
+    public void dataStreamRoundTrip() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        OptionalCodec.write(out, INTS[3]);
+        OptionalCodec.write(out, LONGS[0]);
+        OptionalCodec.write(out, DOUBLES[0]);
+        OptionalCodec.write(out, OptionalInt.empty());
+        OptionalCodec.write(out, Optional.of("abc"), OptionalCodec.UTF8);
+        OptionalCodec.write(out, INTS);
+        OptionalCodec.write(out, LONGS);
+        OptionalCodec.write(out, DOUBLES);
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        assertThat(OptionalCodec.readInt(in), is(INTS[3]));
+        assertThat(OptionalCodec.readLong(in), is(LONGS[0]));
+        assertThat(OptionalCodec.readDouble(in), is(DOUBLES[0]));
+        assertThat(OptionalCodec.readInt(in), is(OptionalInt.empty()));
+        assertThat(OptionalCodec.read(in, OptionalCodec.UTF8), is(Optional.of("abc")));
+        assertThat(OptionalCodec.readIntArray(in), is(INTS));
+        assertThat(OptionalCodec.readLongArray(in), is(LONGS));
+        assertThat(OptionalCodec.readDoubleArray(in), is(DOUBLES));
+        assertThat(in.available(), is(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidTag() {
+        OptionalCodec.readInt(ByteBuffer.wrap(new byte[]{2}));
+    }
+
+    @Test(expected = StreamCorruptedException.class)
+    public void invalidTagInStream() throws Exception {
+        OptionalCodec.readLong(new DataInputStream(new ByteArrayInputStream(new byte[]{-1})));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void intOutOfRange() {
+        ByteBuffer buf = ByteBuffer.allocate(16);
+        OptionalCodec.write(buf, OptionalLong.of(Long.MAX_VALUE));
+        buf.flip();
+        OptionalCodec.readInt(buf);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void arrayLengthBeyondBuffer() {
+        OptionalCodec.readIntArray(ByteBuffer.wrap(new byte[]{100}));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void truncatedArrayValue() {
+        // one element, present, value missing
+        OptionalCodec.readIntArray(ByteBuffer.wrap(new byte[]{1, 1}));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void truncatedDouble() {
+        OptionalCodec.readDouble(ByteBuffer.wrap(new byte[]{1, 0, 0}));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void truncatedTag() {
+        OptionalCodec.readLong(ByteBuffer.allocate(0));
+    }
+
+    @Test(expected = StreamCorruptedException.class)
+    public void stringLengthBeyondMaxInStream() throws Exception {
+        // length Integer.MAX_VALUE - 8
+        byte[] bytes = {1, (byte) 0xF7, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07};
+        OptionalCodec.read(new DataInputStream(new ByteArrayInputStream(bytes)), OptionalCodec.UTF8);
+    }
+
+    @Test(expected = EOFException.class)
+    public void truncatedStringInStream() throws Exception {
+        // length MAX_LENGTH with no bytes following
+        byte[] bytes = {1, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x08};
+        OptionalCodec.read(new DataInputStream(new ByteArrayInputStream(bytes)), OptionalCodec.UTF8);
+    }
+
+    @Test(expected = StreamCorruptedException.class)
+    public void arrayLengthBeyondMaxInStream() throws Exception {
+        byte[] bytes = {(byte) 0xF7, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07};
+        OptionalCodec.readLongArray(new DataInputStream(new ByteArrayInputStream(bytes)));
+    }
+
+    @Test(expected = EOFException.class)
+    public void truncatedArrayInStream() throws Exception {
+        byte[] bytes = {(byte) 0x80, (byte) 0x80, (byte) 0x80, 0x08, 0, 0};
+        OptionalCodec.readDoubleArray(new DataInputStream(new ByteArrayInputStream(bytes)));
+    }
+
+    @Test
+    public void longStringInStream() throws Exception {
+        char[] chars = new char[3 * 8192 + 1];
+        Arrays.fill(chars, 'x');
+        Optional<String> opt = Optional.of(new String(chars));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        OptionalCodec.write(new DataOutputStream(bytes), opt, OptionalCodec.UTF8);
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        assertThat(OptionalCodec.read(in, OptionalCodec.UTF8), is(opt));
+        assertThat(in.read(), is(-1));
+    }
+
+}
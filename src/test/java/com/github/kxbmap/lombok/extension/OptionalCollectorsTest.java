@@ -0,0 +1,110 @@
+/*
+ * Copyright 2014 Tsukasa Kitachi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.kxbmap.lombok.extension;
+
+import org.junit.Test;
+
+import java.util.DoubleSummaryStatistics;
+import java.util.IntSummaryStatistics;
+import java.util.LongSummaryStatistics;
+import java.util.Optional;
+import java.util.OptionalDouble;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class OptionalCollectorsTest {
+
+    private static Stream<OptionalLong> longs() {
+        // every third value is absent
+        return IntStream.range(0, 10000).parallel()
+            .mapToObj(i -> i % 3 == 0 ? OptionalLong.empty() : OptionalLong.of(i));
+    }
+
+    @Test
+    public void summarizingPresentInt() {
+        IntSummaryStatistics stats = Stream.of(OptionalInt.of(3), OptionalInt.empty(), OptionalInt.of(-1))
+            .collect(OptionalCollectors.summarizingPresentInt());
+        assertThat(stats.getCount(), is(2L));
+        assertThat(stats.getSum(), is(2L));
+        assertThat(stats.getMin(), is(-1));
+        assertThat(stats.getMax(), is(3));
+    }
+
+    @Test
+    public void summarizingPresentLong() {
+        LongSummaryStatistics stats = longs().collect(OptionalCollectors.summarizingPresentLong());
+        LongSummaryStatistics expected = IntStream.range(0, 10000).filter(i -> i % 3 != 0)
+            .asLongStream().summaryStatistics();
+        assertThat(stats.getCount(), is(expected.getCount()));
+        assertThat(stats.getSum(), is(expected.getSum()));
+        assertThat(stats.getMin(), is(1L));
+        assertThat(stats.getMax(), is(9998L));
+    }
+
+    @Test
+    public void summarizingPresentDouble() {
+        DoubleSummaryStatistics stats = Stream.of(OptionalDouble.empty(), OptionalDouble.of(1.5), OptionalDouble.of(2.5))
+            .collect(OptionalCollectors.summarizingPresentDouble());
+        assertThat(stats.getCount(), is(2L));
+        assertThat(stats.getAverage(), is(2.0));
+    }
+
+    @Test
+    public void countAbsent() {
+        assertThat(Stream.of(Optional.of("a"), Optional.<String>empty(), Optional.<String>empty())
+            .collect(OptionalCollectors.countAbsent()), is(2L));
+        assertThat(Stream.of(OptionalInt.of(1), OptionalInt.empty())
+            .collect(OptionalCollectors.countAbsentInt()), is(1L));
+        assertThat(longs().collect(OptionalCollectors.countAbsentLong()), is(3334L));
+        assertThat(Stream.of(OptionalDouble.of(1))
+            .collect(OptionalCollectors.countAbsentDouble()), is(0L));
+    }
+
+    @Test
+    public void minMaxPresentInt() {
+        assertThat(Stream.of(OptionalInt.empty(), OptionalInt.of(Integer.MAX_VALUE), OptionalInt.of(2))
+            .collect(OptionalCollectors.minPresentInt()), is(OptionalInt.of(2)));
+        assertThat(Stream.of(OptionalInt.of(Integer.MIN_VALUE), OptionalInt.empty())
+            .collect(OptionalCollectors.maxPresentInt()), is(OptionalInt.of(Integer.MIN_VALUE)));
+        assertThat(Stream.of(OptionalInt.empty())
+            .collect(OptionalCollectors.minPresentInt()), is(OptionalInt.empty()));
+    }
+
+    @Test
+    public void minMaxPresentLong() {
+        assertThat(longs().collect(OptionalCollectors.minPresentLong()), is(OptionalLong.of(1)));
+        assertThat(longs().collect(OptionalCollectors.maxPresentLong()), is(OptionalLong.of(9998)));
+        assertThat(Stream.<OptionalLong>empty()
+            .collect(OptionalCollectors.maxPresentLong()), is(OptionalLong.empty()));
+    }
+
+    @Test
+    public void minMaxPresentDouble() {
+        assertThat(Stream.of(OptionalDouble.of(1.5), OptionalDouble.empty(), OptionalDouble.of(-0.5))
+            .collect(OptionalCollectors.minPresentDouble()), is(OptionalDouble.of(-0.5)));
+        assertThat(Stream.of(OptionalDouble.of(1.5), OptionalDouble.empty(), OptionalDouble.of(-0.5))
+            .collect(OptionalCollectors.maxPresentDouble()), is(OptionalDouble.of(1.5)));
+        assertThat(Stream.of(OptionalDouble.empty())
+            .collect(OptionalCollectors.maxPresentDouble()), is(OptionalDouble.empty()));
+    }
+
+}
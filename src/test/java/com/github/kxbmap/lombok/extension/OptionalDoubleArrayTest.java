@@ -0,0 +1,48 @@
+/*
+ * Copyright 2014 Tsukasa Kitachi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.kxbmap.lombok.extension;
+
+import org.junit.Test;
+
+import java.util.OptionalDouble;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class OptionalDoubleArrayTest {
+
+    @Test
+    public void getAndSet() {
+        OptionalDoubleArray array = new OptionalDoubleArray(65);
+        array.set(64, 0.5);
+        assertThat(array.get(64), is(OptionalDouble.of(0.5)));
+        assertThat(array.get(0), is(OptionalDouble.empty()));
+        array.set(64, OptionalDouble.empty());
+        assertThat(array.countPresent(), is(0));
+    }
+
+    @Test
+    public void mapFoldSum() {
+        OptionalDoubleArray array = OptionalDoubleArray.of(
+            OptionalDouble.of(1.5), OptionalDouble.empty(), OptionalDouble.of(2.5));
+        OptionalDoubleArray mapped = array.map(d -> d * 2);
+        assertThat(mapped.get(2), is(OptionalDouble.of(5.0)));
+        assertThat(mapped.sum(), is(8.0));
+        assertThat(array.fold(d -> d, () -> Double.NaN)[1], is(Double.NaN));
+    }
+
+}
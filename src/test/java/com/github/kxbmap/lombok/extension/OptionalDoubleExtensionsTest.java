@@ -20,10 +20,13 @@ import lombok.experimental.ExtensionMethod;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.DoubleSummaryStatistics;
 import java.util.Optional;
 import java.util.OptionalDouble;
 import java.util.OptionalInt;
 import java.util.OptionalLong;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
@@ -352,4 +355,63 @@ public class OptionalDoubleExtensionsTest {
         );
     }
 
+
+    // bulk aggregation over present values
+
+    @Test
+    public void aggregatePresent() {
+        OptionalDouble[] opts = new OptionalDouble[BulkAggregation.THRESHOLD * 3 + 1];
+        for (int i = 0; i < opts.length; i++) {
+            opts[i] = i % 3 == 0 ? OptionalDouble.empty() : OptionalDouble.of(i * 0.5);
+        }
+        DoubleSummaryStatistics expected = Arrays.stream(opts)
+            .filter(OptionalDouble::isPresent).mapToDouble(OptionalDouble::getAsDouble).summaryStatistics();
+
+        assertThat(opts.sumPresent(), is(expected.getSum()));
+        assertThat(opts.countPresent(), is(expected.getCount()));
+        assertThat(opts.meanPresent(), is(OptionalDouble.of(expected.getAverage())));
+        assertThat(opts.minPresent(), is(OptionalDouble.of(expected.getMin())));
+        assertThat(Arrays.asList(opts).maxPresent(), is(OptionalDouble.of(expected.getMax())));
+        assertThat(new OptionalDouble[]{OptionalDouble.empty()}.meanPresent(), is(OptionalDouble.empty()));
+    }
+
+    @Test
+    public void sumPresentIsCompensated() {
+        OptionalDouble[] opts = new OptionalDouble[BulkAggregation.THRESHOLD * 2 + 1];
+        opts[0] = OptionalDouble.of(1e16);
+        for (int i = 1; i < opts.length; i++) {
+            opts[i] = OptionalDouble.of(1.0);
+        }
+        // a naive left-to-right sum loses every 1.0
+        assertThat(opts.sumPresent(), is(1e16 + opts.length - 1));
+    }
+
+    @Test
+    public void histogram() {
+        OptionalDouble[] opts = {OptionalDouble.of(0), OptionalDouble.of(0.49), OptionalDouble.of(0.5),
+            OptionalDouble.of(1.0), OptionalDouble.of(Double.NaN), OptionalDouble.empty()};
+        assertThat(opts.histogram(0, 1, 2), is(new long[]{2, 1}));
+    }
+
+
+    // firstPresent
+
+    @Test
+    public void firstPresent() {
+        AtomicInteger calls = new AtomicInteger();
+        OptionalDouble opt = OptionalDoubleExtensions.firstPresent(
+            OptionalDouble::empty,
+            () -> {
+                calls.incrementAndGet();
+                return OptionalDouble.of(1.0);
+            },
+            () -> {
+                calls.incrementAndGet();
+                return OptionalDouble.of(2.0);
+            });
+        assertThat(opt, is(OptionalDouble.of(1.0)));
+        assertThat(calls.get(), is(1));
+        assertThat(OptionalDoubleExtensions.firstPresent(OptionalDouble::empty), is(OptionalDouble.empty()));
+    }
+
 }
@@ -24,6 +24,13 @@ import java.util.Optional;
 import java.util.OptionalDouble;
 import java.util.OptionalInt;
 import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
@@ -305,4 +312,94 @@ public class OptionalExtensionsTest {
         );
     }
 
+
+    // firstPresent
+
+    @Test
+    public void firstPresentStopsAtFirstHit() {
+        AtomicInteger calls = new AtomicInteger();
+        Optional<String> opt = OptionalExtensions.firstPresent(
+            () -> {
+                calls.incrementAndGet();
+                return Optional.empty();
+            },
+            () -> {
+                calls.incrementAndGet();
+                return Optional.of("b");
+            },
+            () -> {
+                fail();
+                return Optional.of("c");
+            });
+        assertThat(opt, is(Optional.of("b")));
+        assertThat(calls.get(), is(2));
+    }
+
+    @Test
+    public void firstPresentIfNone() {
+        assertThat(OptionalExtensions.<String>firstPresent(Optional::empty, Optional::empty), is(Optional.empty()));
+        assertThat(OptionalExtensions.<String>firstPresent(), is(Optional.empty()));
+    }
+
+    @Test
+    public void firstPresentAsyncKeepsOrder() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            CountDownLatch slow = new CountDownLatch(1);
+            CompletableFuture<Optional<String>> f = OptionalExtensions.firstPresentAsync(executor,
+                () -> {
+                    try {
+                        slow.await();
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                    return Optional.of("a");
+                },
+                () -> Optional.of("b"));
+
+            Thread.sleep(20);
+            assertThat(f.isDone(), is(false));
+            slow.countDown();
+            assertThat(f.get(1, TimeUnit.SECONDS), is(Optional.of("a")));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void firstPresentAsyncSkipsAbsentAndIgnoresLaterFailures() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            CompletableFuture<Optional<String>> f = OptionalExtensions.firstPresentAsync(executor,
+                Optional::empty,
+                () -> Optional.of("b"),
+                () -> {
+                    throw new IllegalStateException();
+                });
+            assertThat(f.get(1, TimeUnit.SECONDS), is(Optional.of("b")));
+
+            CompletableFuture<Optional<String>> g = OptionalExtensions.firstPresentAsync(executor,
+                Optional::empty, Optional::empty);
+            assertThat(g.get(1, TimeUnit.SECONDS), is(Optional.empty()));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void firstPresentAsyncFailure() throws Exception {
+        IllegalStateException ex = new IllegalStateException();
+        CompletableFuture<Optional<String>> f = OptionalExtensions.firstPresentAsync(Runnable::run,
+            () -> {
+                throw ex;
+            },
+            () -> Optional.of("b"));
+        try {
+            f.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), is(ex));
+        }
+    }
+
 }
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2014 Tsukasa Kitachi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.kxbmap.lombok.extension;
+
+import org.junit.Test;
+
+import java.util.NoSuchElementException;
+import java.util.OptionalInt;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class OptionalIntArrayTest {
+
+    private static OptionalIntArray sample() {
+        // present at multiples of 3 across several bitmap words
+        OptionalIntArray array = new OptionalIntArray(200);
+        for (int i = 0; i < 200; i += 3) {
+            array.set(i, i);
+        }
+        return array;
+    }
+
+    @Test
+    public void getAndSet() {
+        OptionalIntArray array = new OptionalIntArray(130);
+        assertThat(array.length(), is(130));
+        assertThat(array.get(129), is(OptionalInt.empty()));
+
+        array.set(129, 42);
+        array.set(64, OptionalInt.of(-1));
+        assertThat(array.isPresent(129), is(true));
+        assertThat(array.get(129), is(OptionalInt.of(42)));
+        assertThat(array.getAsInt(64), is(-1));
+        assertThat(array.isPresent(63), is(false));
+
+        array.set(129, OptionalInt.empty());
+        assertThat(array.isPresent(129), is(false));
+        assertThat(array.countPresent(), is(1));
+    }
+
+    @Test
+    public void smallValuesAreCached() {
+        OptionalIntArray array = OptionalIntArray.of(OptionalInt.of(7), OptionalInt.of(7));
+        assertThat(array.get(0), is(sameInstance(array.get(1))));
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void getAsIntIfAbsent() {
+        new OptionalIntArray(1).getAsInt(0);
+    }
+
+    @Test(expected = ArrayIndexOutOfBoundsException.class)
+    public void outOfBounds() {
+        // index 1 would still be inside the bitmap word
+        new OptionalIntArray(1).get(1);
+    }
+
+    @Test
+    public void map() {
+        OptionalIntArray mapped = sample().map(n -> n * 2);
+        for (int i = 0; i < 200; i++) {
+            assertThat(mapped.get(i), is(i % 3 == 0 ? OptionalInt.of(i * 2) : OptionalInt.empty()));
+        }
+    }
+
+    @Test
+    public void fold() {
+        int[] folded = OptionalIntArray.of(OptionalInt.of(1), OptionalInt.empty(), OptionalInt.of(3))
+            .fold(n -> n + 1, () -> -1);
+        assertThat(folded, is(new int[]{2, -1, 4}));
+    }
+
+    @Test
+    public void foldCallsOtherForEachAbsentElement() {
+        int[] calls = {0};
+        int[] folded = OptionalIntArray.of(OptionalInt.empty(), OptionalInt.of(1), OptionalInt.empty())
+            .fold(n -> n, () -> --calls[0]);
+        assertThat(folded, is(new int[]{-1, 1, -2}));
+        assertThat(calls[0], is(-2));
+    }
+
+    @Test
+    public void sumAndCount() {
+        OptionalIntArray array = sample();
+        assertThat(array.countPresent(), is(67));
+        assertThat(array.sum(), is(3L * 66 * 67 / 2));
+        assertThat(OptionalIntArray.of(OptionalInt.of(Integer.MAX_VALUE), OptionalInt.of(Integer.MAX_VALUE)).sum(),
+            is(2L * Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void equalsAfterClear() {
+        OptionalIntArray a = OptionalIntArray.of(OptionalInt.of(1), OptionalInt.empty());
+        OptionalIntArray b = OptionalIntArray.of(OptionalInt.of(1), OptionalInt.of(2));
+        b.clear(1);
+        assertThat(a.equals(b), is(true));
+        assertThat(a.hashCode(), is(b.hashCode()));
+        assertThat(a.toString(), is("[OptionalInt[1], OptionalInt.empty]"));
+    }
+
+}
@@ -20,10 +20,14 @@ import lombok.experimental.ExtensionMethod;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.IntSummaryStatistics;
+import java.util.LinkedList;
 import java.util.Optional;
 import java.util.OptionalDouble;
 import java.util.OptionalInt;
 import java.util.OptionalLong;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
@@ -352,4 +356,78 @@ public class OptionalIntExtensionsTest {
         );
     }
 
+
+    // bulk aggregation over present values
+
+    private static OptionalInt[] bulk() {
+        // large enough to be split; every third value is absent
+        OptionalInt[] opts = new OptionalInt[BulkAggregation.THRESHOLD * 3 + 1];
+        for (int i = 0; i < opts.length; i++) {
+            opts[i] = i % 3 == 0 ? OptionalInt.empty() : OptionalInt.of(i - 100);
+        }
+        return opts;
+    }
+
+    @Test
+    public void aggregatePresent() {
+        OptionalInt[] opts = bulk();
+        IntSummaryStatistics expected = Arrays.stream(opts)
+            .filter(OptionalInt::isPresent).mapToInt(OptionalInt::getAsInt).summaryStatistics();
+
+        assertThat(opts.sumPresent(), is(expected.getSum()));
+        assertThat(opts.countPresent(), is(expected.getCount()));
+        assertThat(opts.meanPresent(), is(OptionalDouble.of(expected.getAverage())));
+        assertThat(opts.minPresent(), is(OptionalInt.of(expected.getMin())));
+        assertThat(opts.maxPresent(), is(OptionalInt.of(expected.getMax())));
+        assertThat(new LinkedList<>(Arrays.asList(opts)).sumPresent(), is(expected.getSum()));
+        assertThat(Arrays.asList(opts).maxPresent(), is(OptionalInt.of(expected.getMax())));
+    }
+
+    @Test
+    public void aggregateNonePresent() {
+        OptionalInt[] opts = {OptionalInt.empty()};
+        assertThat(opts.sumPresent(), is(0L));
+        assertThat(opts.meanPresent(), is(OptionalDouble.empty()));
+        assertThat(opts.minPresent(), is(OptionalInt.empty()));
+        assertThat(new OptionalInt[0].maxPresent(), is(OptionalInt.empty()));
+    }
+
+    @Test
+    public void histogram() {
+        OptionalInt[] opts = {OptionalInt.of(0), OptionalInt.of(4), OptionalInt.of(5), OptionalInt.of(9),
+            OptionalInt.of(10), OptionalInt.of(-1), OptionalInt.empty()};
+        assertThat(opts.histogram(0, 10, 2), is(new long[]{2, 2}));
+        assertThat(new OptionalInt[]{OptionalInt.of(Integer.MAX_VALUE - 1)}
+            .histogram(Integer.MIN_VALUE, Integer.MAX_VALUE, 4), is(new long[]{0, 0, 0, 1}));
+
+        long[] counts = bulk().histogram(-100, BulkAggregation.THRESHOLD * 3 - 100, 3);
+        assertThat(counts[0] + counts[1] + counts[2], is(bulk().countPresent()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void histogramEmptyRange() {
+        new OptionalInt[0].histogram(1, 1, 1);
+    }
+
+
+    // firstPresent
+
+    @Test
+    public void firstPresent() {
+        AtomicInteger calls = new AtomicInteger();
+        OptionalInt opt = OptionalIntExtensions.firstPresent(
+            OptionalInt::empty,
+            () -> {
+                calls.incrementAndGet();
+                return OptionalInt.of(1);
+            },
+            () -> {
+                calls.incrementAndGet();
+                return OptionalInt.of(2);
+            });
+        assertThat(opt, is(OptionalInt.of(1)));
+        assertThat(calls.get(), is(1));
+        assertThat(OptionalIntExtensions.firstPresent(OptionalInt::empty), is(OptionalInt.empty()));
+    }
+
 }
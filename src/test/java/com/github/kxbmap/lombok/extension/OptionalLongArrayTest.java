@@ -0,0 +1,55 @@
+/*
+ * Copyright 2014 Tsukasa Kitachi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.kxbmap.lombok.extension;
+
+import org.junit.Test;
+
+import java.util.OptionalLong;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class OptionalLongArrayTest {
+
+    @Test
+    public void getAndSet() {
+        OptionalLongArray array = new OptionalLongArray(100);
+        array.set(99, Long.MAX_VALUE);
+        assertThat(array.get(99), is(OptionalLong.of(Long.MAX_VALUE)));
+        assertThat(array.get(98), is(OptionalLong.empty()));
+        array.clear(99);
+        assertThat(array.countPresent(), is(0));
+    }
+
+    @Test
+    public void smallValuesAreCached() {
+        OptionalLongArray array = OptionalLongArray.of(OptionalLong.of(-3), OptionalLong.of(-3));
+        assertThat(array.get(0), is(sameInstance(array.get(1))));
+    }
+
+    @Test
+    public void mapFoldSum() {
+        OptionalLongArray array = OptionalLongArray.of(OptionalLong.of(1), OptionalLong.empty(), OptionalLong.of(3));
+        OptionalLongArray mapped = array.map(n -> n * 10);
+        assertThat(mapped.get(1), is(OptionalLong.empty()));
+        assertThat(mapped.sum(), is(40L));
+        assertThat(mapped.countPresent(), is(2));
+        assertThat(array.fold(n -> n, () -> 0), is(new long[]{1, 0, 3}));
+    }
+
+}
@@ -20,10 +20,13 @@ import lombok.experimental.ExtensionMethod;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.LongSummaryStatistics;
 import java.util.Optional;
 import java.util.OptionalDouble;
 import java.util.OptionalInt;
 import java.util.OptionalLong;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
@@ -352,4 +355,52 @@ public class OptionalLongExtensionsTest {
         );
     }
 
+
+    // bulk aggregation over present values
+
+    @Test
+    public void aggregatePresent() {
+        OptionalLong[] opts = new OptionalLong[BulkAggregation.THRESHOLD * 3 + 1];
+        for (int i = 0; i < opts.length; i++) {
+            opts[i] = i % 3 == 0 ? OptionalLong.empty() : OptionalLong.of(i * 1000000000L);
+        }
+        LongSummaryStatistics expected = Arrays.stream(opts)
+            .filter(OptionalLong::isPresent).mapToLong(OptionalLong::getAsLong).summaryStatistics();
+
+        assertThat(opts.sumPresent(), is(expected.getSum()));
+        assertThat(opts.countPresent(), is(expected.getCount()));
+        assertThat(opts.meanPresent(), is(OptionalDouble.of(expected.getAverage())));
+        assertThat(opts.minPresent(), is(OptionalLong.of(expected.getMin())));
+        assertThat(Arrays.asList(opts).maxPresent(), is(OptionalLong.of(expected.getMax())));
+        assertThat(new OptionalLong[]{OptionalLong.empty()}.meanPresent(), is(OptionalDouble.empty()));
+    }
+
+    @Test
+    public void histogram() {
+        OptionalLong[] opts = {OptionalLong.of(Long.MIN_VALUE), OptionalLong.of(-2), OptionalLong.of(-1),
+            OptionalLong.of(Long.MAX_VALUE - 1), OptionalLong.of(Long.MAX_VALUE), OptionalLong.empty()};
+        assertThat(opts.histogram(Long.MIN_VALUE, Long.MAX_VALUE, 2), is(new long[]{2, 2}));
+    }
+
+
+    // firstPresent
+
+    @Test
+    public void firstPresent() {
+        AtomicInteger calls = new AtomicInteger();
+        OptionalLong opt = OptionalLongExtensions.firstPresent(
+            OptionalLong::empty,
+            () -> {
+                calls.incrementAndGet();
+                return OptionalLong.of(1L);
+            },
+            () -> {
+                calls.incrementAndGet();
+                return OptionalLong.of(2L);
+            });
+        assertThat(opt, is(OptionalLong.of(1L)));
+        assertThat(calls.get(), is(1));
+        assertThat(OptionalLongExtensions.firstPresent(OptionalLong::empty), is(OptionalLong.empty()));
+    }
+
 }
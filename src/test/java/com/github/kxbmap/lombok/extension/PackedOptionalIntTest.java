@@ -0,0 +1,107 @@
+/*
+ * Copyright 2014 Tsukasa Kitachi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.kxbmap.lombok.extension;
+
+import org.junit.Test;
+
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.OptionalDouble;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class PackedOptionalIntTest {
+
+    private final long present = PackedOptionalInt.of(42);
+    private final long negative = PackedOptionalInt.of(-1);
+    private final long absent = PackedOptionalInt.EMPTY;
+
+    @Test
+    public void roundTrip() {
+        for (int n : new int[]{0, 1, -1, Integer.MIN_VALUE, Integer.MAX_VALUE}) {
+            long packed = PackedOptionalInt.of(n);
+            assertThat(PackedOptionalInt.isPresent(packed), is(true));
+            assertThat(PackedOptionalInt.getAsInt(packed), is(n));
+            assertThat(PackedOptionalInt.toOptional(packed), is(OptionalInt.of(n)));
+            assertThat(PackedOptionalInt.of(OptionalInt.of(n)), is(packed));
+        }
+        assertThat(PackedOptionalInt.isAbsent(absent), is(true));
+        assertThat(PackedOptionalInt.toOptional(absent), is(OptionalInt.empty()));
+        assertThat(PackedOptionalInt.of(OptionalInt.empty()), is(absent));
+        assertThat(PackedOptionalInt.isAbsent((new long[1])[0]), is(true));
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void getAsIntIfAbsent() {
+        PackedOptionalInt.getAsInt(absent);
+    }
+
+    @Test
+    public void orElseAndFilter() {
+        assertThat(PackedOptionalInt.orElse(negative, 0), is(-1));
+        assertThat(PackedOptionalInt.orElse(absent, 0), is(0));
+        assertThat(PackedOptionalInt.filter(present, n -> n > 0), is(present));
+        assertThat(PackedOptionalInt.filter(negative, n -> n > 0), is(absent));
+    }
+
+    @Test
+    public void map() {
+        assertThat(PackedOptionalInt.map(present, n -> -n), is(PackedOptionalInt.of(-42)));
+        assertThat(PackedOptionalInt.map(absent, n -> n + 1), is(absent));
+        assertThat(PackedOptionalInt.mapToLong(present, n -> n * 2L), is(OptionalLong.of(84)));
+        assertThat(PackedOptionalInt.mapToDouble(present, n -> n / 4.0), is(OptionalDouble.of(10.5)));
+        assertThat(PackedOptionalInt.mapToObj(present, String::valueOf), is(Optional.of("42")));
+        assertThat(PackedOptionalInt.mapToObj(absent, String::valueOf), is(Optional.empty()));
+    }
+
+    @Test
+    public void flatMap() {
+        assertThat(PackedOptionalInt.flatMap(present, n -> PackedOptionalInt.EMPTY), is(absent));
+        assertThat(PackedOptionalInt.flatMap(present, PackedOptionalInt::of), is(present));
+        assertThat(PackedOptionalInt.flatMapToLong(present, n -> OptionalLong.of(n)), is(OptionalLong.of(42)));
+        assertThat(PackedOptionalInt.flatMapToDouble(absent, n -> OptionalDouble.of(n)), is(OptionalDouble.empty()));
+        assertThat(PackedOptionalInt.flatMapToObj(present, n -> Optional.of(n)), is(Optional.of(42)));
+    }
+
+    @Test
+    public void fold() {
+        assertThat(PackedOptionalInt.fold(present, n -> n + 1, () -> 0), is(43));
+        assertThat(PackedOptionalInt.fold(absent, n -> n + 1, () -> 0), is(0));
+        assertThat(PackedOptionalInt.foldToLong(negative, n -> n, () -> 0), is(-1L));
+        assertThat(PackedOptionalInt.foldToDouble(absent, n -> n, () -> 0.5), is(0.5));
+        assertThat(PackedOptionalInt.foldToObj(present, String::valueOf, () -> "none"), is("42"));
+    }
+
+    @Test
+    public void consume() {
+        AtomicInteger result = new AtomicInteger();
+        PackedOptionalInt.ifPresent(present, result::set);
+        assertThat(result.get(), is(42));
+        PackedOptionalInt.ifAbsent(absent, () -> result.set(0));
+        assertThat(result.get(), is(0));
+        PackedOptionalInt.consume(negative, result::set, () -> fail());
+        assertThat(result.get(), is(-1));
+        assertThat(PackedOptionalInt.toString(present), is("PackedOptionalInt[42]"));
+        assertThat(PackedOptionalInt.toString(absent), is("PackedOptionalInt.empty"));
+    }
+
+}
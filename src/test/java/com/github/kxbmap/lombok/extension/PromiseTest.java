@@ -0,0 +1,286 @@
+/*
+ * Copyright 2014 Tsukasa Kitachi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.kxbmap.lombok.extension;
+
+import com.sun.management.ThreadMXBean;
+import lombok.experimental.ExtensionMethod;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+@ExtensionMethod(FutureExtensions.class)
+public class PromiseTest {
+
+    @Test
+    public void completeNotifiesListener() {
+        Promise<Integer> p = Promise.pending();
+        AtomicReference<Integer> result = new AtomicReference<>();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        p.whenComplete(result::set, failure::set);
+
+        assertThat(p.isDone(), is(false));
+        assertThat(p.complete(42), is(true));
+        assertThat(p.isDone(), is(true));
+        assertThat(result.get(), is(42));
+        assertThat(failure.get(), is(nullValue()));
+    }
+
+    @Test
+    public void completeWithNull() {
+        Promise<Integer> p = Promise.pending();
+        AtomicBoolean notified = new AtomicBoolean();
+        AtomicReference<Integer> result = new AtomicReference<>(0);
+        p.onComplete((t, e) -> {
+            notified.set(true);
+            result.set(t);
+        });
+
+        assertThat(p.complete(null), is(true));
+        assertThat(p.isDone(), is(true));
+        assertThat(p.isCompletedExceptionally(), is(false));
+        assertThat(notified.get(), is(true));
+        assertThat(result.get(), is(nullValue()));
+    }
+
+    @Test
+    public void completeWithPromiseStage() throws Exception {
+        Promise<Integer> pending = Promise.<Integer>pending().map(n -> n + 1);
+        Promise<Promise<Integer>> p = Promise.pending();
+        AtomicReference<Promise<Integer>> result = new AtomicReference<>();
+        p.onComplete((t, e) -> result.set(t));
+
+        p.complete(pending);
+        assertThat(p.isDone(), is(true));
+        assertThat(result.get(), is(sameInstance(pending)));
+        assertThat(p.toCompletableFuture().get(), is(sameInstance(pending)));
+    }
+
+    @Test
+    public void completeOnlyOnce() {
+        Promise<Integer> p = Promise.pending();
+        assertThat(p.complete(42), is(true));
+        assertThat(p.complete(0), is(false));
+        assertThat(p.completeExceptionally(new Exception()), is(false));
+        assertThat(p.isCompletedExceptionally(), is(false));
+    }
+
+    @Test
+    public void listenersNotifiedInRegistrationOrder() {
+        Promise<Integer> p = Promise.pending();
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            int n = i;
+            p.onComplete((t, e) -> order.add(n));
+        }
+        p.complete(42);
+        p.onComplete((t, e) -> order.add(4));
+
+        assertThat(order, is(Arrays.asList(0, 1, 2, 3, 4)));
+    }
+
+    @Test
+    public void completeExceptionallyNotifiesListener() {
+        Promise<Integer> p = Promise.pending();
+        Exception ex = new Exception();
+        AtomicReference<Integer> value = new AtomicReference<>();
+        AtomicReference<Throwable> result = new AtomicReference<>();
+        p.whenComplete(value::set, result::set);
+
+        p.completeExceptionally(ex);
+        assertThat(p.isCompletedExceptionally(), is(true));
+        assertThat(result.get(), is(ex));
+        assertThat(value.get(), is(nullValue()));
+    }
+
+    @Test
+    public void map() throws Exception {
+        Promise<Integer> p = Promise.pending();
+        Promise<Integer> q = p.map(n -> n + 1);
+        p.complete(42);
+        assertThat(q.toCompletableFuture().get(), is(43));
+    }
+
+    @Test
+    public void mapIfMapperThrows() throws Exception {
+        RuntimeException ex = new RuntimeException();
+        Promise<Integer> q = Promise.completed(42).map(n -> {
+            throw ex;
+        });
+        try {
+            q.toCompletableFuture().get();
+            fail();
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), is(ex));
+        }
+    }
+
+    @Test
+    public void flatMap() throws Exception {
+        Promise<Integer> p = Promise.pending();
+        Promise<Integer> inner = Promise.pending();
+        Promise<Integer> q = p.flatMap(n -> inner.map(m -> n + m));
+        p.complete(40);
+        assertThat(q.isDone(), is(false));
+        inner.complete(2);
+        assertThat(q.toCompletableFuture().get(), is(42));
+    }
+
+    @Test
+    public void flatMapIfSourceFailed() {
+        Exception ex = new Exception();
+        AtomicReference<Throwable> result = new AtomicReference<>();
+        Promise.<Integer>failed(ex).flatMap(Promise::completed).onComplete((t, e) -> result.set(e));
+        assertThat(result.get(), is(ex));
+    }
+
+    @Test
+    public void deepMapChainDoesNotOverflow() throws Exception {
+        Promise<Integer> root = Promise.pending();
+        Promise<Integer> p = root;
+        for (int i = 0; i < 100000; i++) {
+            p = p.map(n -> n + 1);
+        }
+        root.complete(0);
+        assertThat(p.isDone(), is(true));
+        assertThat(p.toCompletableFuture().get(), is(100000));
+    }
+
+    @Test
+    public void deepFlatMapChainDoesNotOverflow() throws Exception {
+        Promise<Integer> root = Promise.pending();
+        Promise<Integer> p = root;
+        for (int i = 0; i < 100000; i++) {
+            p = p.flatMap(n -> Promise.completed(n + 1));
+        }
+        root.complete(0);
+        assertThat(p.isDone(), is(true));
+        assertThat(p.toCompletableFuture().get(), is(100000));
+    }
+
+    @Test
+    public void dependentsOfSeveralStagesAreCompleted() throws Exception {
+        Promise<Integer> root = Promise.pending();
+        Promise<Integer> a = root.map(n -> n + 1);
+        Promise<Integer> b = root.map(n -> n + 2);
+        Promise<Integer> c = a.map(n -> n * 10);
+        Promise<Integer> d = b.map(n -> n * 10);
+        List<Integer> order = new ArrayList<>();
+        b.onComplete((t, e) -> order.add(t));
+        a.onComplete((t, e) -> order.add(t));
+
+        root.complete(0);
+        assertThat(c.toCompletableFuture().get(), is(10));
+        assertThat(d.toCompletableFuture().get(), is(20));
+        assertThat(order.size(), is(2));
+    }
+
+    @Test
+    public void mapAllocatesLessThanCompletableFuture() {
+        ThreadMXBean bean = threadMXBean();
+        Function<Integer, Integer> f = n -> n;
+        Integer value = 42;
+        long promise = 0;
+        long future = 0;
+        // first rounds warm up
+        for (int round = 0; round < 5; round++) {
+            long start = bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+            for (int i = 0; i < ALLOCATION_OPS; i++) {
+                Promise<Integer> p = Promise.pending();
+                sink = p.map(f);
+                p.complete(value);
+            }
+            long mid = bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+            for (int i = 0; i < ALLOCATION_OPS; i++) {
+                CompletableFuture<Integer> p = new CompletableFuture<>();
+                sink = p.thenApply(f);
+                p.complete(value);
+            }
+            long end = bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+            promise = (mid - start) / ALLOCATION_OPS;
+            future = (end - mid) / ALLOCATION_OPS;
+        }
+        assertThat("promise " + promise + " B/op, future " + future + " B/op", promise < future, is(true));
+    }
+
+    private static final int ALLOCATION_OPS = 100_000;
+
+    private static volatile Object sink;
+
+    private static ThreadMXBean threadMXBean() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof ThreadMXBean);
+        ThreadMXBean b = (ThreadMXBean) bean;
+        assumeTrue(b.isThreadAllocatedMemorySupported() && b.isThreadAllocatedMemoryEnabled());
+        return b;
+    }
+
+    @Test
+    public void toCompletableFuture() throws Exception {
+        Promise<Integer> p = Promise.pending();
+        CompletableFuture<Integer> f = p.toCompletableFuture();
+        assertThat(f.isDone(), is(false));
+        p.complete(42);
+        assertThat(f.get(), is(42));
+    }
+
+    @Test
+    public void toCompletableFutureIfFailed() throws Exception {
+        Exception ex = new Exception();
+        try {
+            Promise.failed(ex).toCompletableFuture().get();
+            fail();
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), is(ex));
+        }
+    }
+
+    @Test
+    public void toPromise() throws Exception {
+        CompletableFuture<Integer> f = new CompletableFuture<>();
+        Promise<Integer> p = f.toPromise();
+        assertThat(p.isDone(), is(false));
+        f.complete(42);
+        assertThat(p.toCompletableFuture().get(), is(42));
+    }
+
+    @Test
+    public void toPromiseUnwrapsCompletionException() {
+        Exception ex = new Exception();
+        CompletableFuture<Integer> f = FutureExtensions.<Integer>exceptionallyFuture(ex).thenApply(n -> n + 1);
+        AtomicReference<Integer> value = new AtomicReference<>();
+        AtomicReference<Throwable> result = new AtomicReference<>();
+        f.toPromise().whenComplete(value::set, result::set);
+        assertThat(result.get(), is(ex));
+        assertThat(value.get(), is(nullValue()));
+    }
+
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2014 Tsukasa Kitachi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.kxbmap.lombok.extension;
+
+import lombok.experimental.ExtensionMethod;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+@ExtensionMethod(FutureExtensions.class)
+public class TrampolineExecutorTest {
+
+    private static Thread executorThread;
+    private static ExecutorService executor;
+
+    @BeforeClass
+    public static void setupExecutor() throws Exception {
+        executor = Executors.newSingleThreadExecutor(r -> {
+            executorThread = new Thread(r);
+            return executorThread;
+        });
+    }
+
+    @AfterClass
+    public static void shutdownExecutor() throws Exception {
+        executor.shutdown();
+        executor = null;
+        executorThread = null;
+    }
+
+    @Test
+    public void executeFromOutside() throws Exception {
+        TrampolineExecutor trampoline = new TrampolineExecutor(executor);
+        CompletableFuture<Thread> thread = new CompletableFuture<>();
+
+        trampoline.execute(() -> thread.complete(Thread.currentThread()));
+
+        assertThat(thread.get(), is(executorThread));
+        assertThat(trampoline.inExecutor(), is(false));
+    }
+
+    @Test
+    public void executeInline() throws Exception {
+        TrampolineExecutor trampoline = new TrampolineExecutor(executor);
+        List<Integer> order = new ArrayList<>();
+        CompletableFuture<Void> done = new CompletableFuture<>();
+
+        trampoline.execute(() -> {
+            order.add(0);
+            trampoline.execute(() -> order.add(1));
+            order.add(2);
+            done.complete(null);
+        });
+
+        done.get();
+        assertThat(order, is(Arrays.asList(0, 1, 2)));
+    }
+
+    @Test
+    public void queueBeyondMaxDepth() throws Exception {
+        TrampolineExecutor trampoline = new TrampolineExecutor(executor, 1);
+        List<Integer> order = new ArrayList<>();
+        CompletableFuture<Void> done = new CompletableFuture<>();
+
+        trampoline.execute(() -> {
+            trampoline.execute(() -> {
+                trampoline.execute(() -> {
+                    order.add(3);
+                    done.complete(null);
+                });
+                order.add(1);
+            });
+            order.add(2);
+        });
+
+        done.get();
+        assertThat(order, is(Arrays.asList(1, 2, 3)));
+    }
+
+    @Test
+    public void executeInlineOnExecutorThread() throws Exception {
+        EventLoopExecutor loop = new EventLoopExecutor();
+        try {
+            TrampolineExecutor trampoline = new TrampolineExecutor(loop, loop::inEventLoop);
+            List<Integer> order = new ArrayList<>();
+            CompletableFuture<Void> done = new CompletableFuture<>();
+
+            loop.execute(() -> {
+                order.add(0);
+                trampoline.execute(() -> order.add(1));
+                order.add(2);
+                done.complete(null);
+            });
+
+            done.get();
+            assertThat(order, is(Arrays.asList(0, 1, 2)));
+        } finally {
+            loop.shutdown();
+        }
+    }
+
+    @Test
+    public void inlineExceptionGoesToUncaughtExceptionHandler() throws Exception {
+        TrampolineExecutor trampoline = new TrampolineExecutor(executor, () -> true);
+        RuntimeException ex = new RuntimeException();
+        List<Throwable> uncaught = new ArrayList<>();
+        List<Integer> order = new ArrayList<>();
+
+        Thread current = Thread.currentThread();
+        Thread.UncaughtExceptionHandler handler = current.getUncaughtExceptionHandler();
+        current.setUncaughtExceptionHandler((t, e) -> uncaught.add(e));
+        try {
+            trampoline.execute(() -> {
+                trampoline.execute(() -> {
+                    throw ex;
+                });
+                order.add(1);
+                throw ex;
+            });
+        } finally {
+            current.setUncaughtExceptionHandler(handler);
+        }
+
+        assertThat(order, is(Arrays.asList(1)));
+        assertThat(uncaught, is(Arrays.<Throwable>asList(ex, ex)));
+    }
+
+    @Test
+    public void whenCompleteOn() throws Exception {
+        TrampolineExecutor trampoline = new TrampolineExecutor(executor);
+        CompletableFuture<Integer> f = CompletableFuture.completedFuture(42);
+        AtomicReference<Thread> thread = new AtomicReference<>();
+
+        CompletableFuture<Integer> g = f.whenCompleteOn(
+            n -> thread.set(Thread.currentThread()),
+            e -> fail(),
+            trampoline
+        );
+
+        assertThat(g.get(), is(42));
+        assertThat(thread.get(), is(executorThread));
+        assertThat(thread.get(), is(not(Thread.currentThread())));
+    }
+
+    @Test
+    public void deepChainDoesNotOverflow() throws Exception {
+        TrampolineExecutor trampoline = new TrampolineExecutor(executor);
+        AtomicInteger count = new AtomicInteger();
+        CompletableFuture<Integer> root = new CompletableFuture<>();
+
+        CompletableFuture<Integer> f = root;
+        for (int i = 0; i < 100000; i++) {
+            f = f.whenCompleteOn(n -> count.incrementAndGet(), e -> fail(), trampoline);
+        }
+
+        trampoline.execute(() -> root.complete(42));
+
+        assertThat(f.get(), is(42));
+        assertThat(count.get(), is(100000));
+    }
+
+}